@@ -1,45 +1,110 @@
 package edu.northeastern.psa;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 public class Ant {
 	private int currentLocationKey;
-	private Set<Integer> visited;
-	private List<Integer> visitedLocationsInOrder;
-	
-	public Ant() {
+	private int[] tour;
+	private long[] visited;
+	private int visitedCount;
+	private double tourLength;
+	private int[] candidates;
+	private double[] cumulativeWeights;
+
+	public Ant(int numLocations) {
+		this.tour = new int[numLocations];
+		this.visited = new long[(numLocations + 63) >>> 6];
+		this.candidates = new int[numLocations];
+		this.cumulativeWeights = new double[numLocations];
+	}
+
+	public void reset(int firstLocationKey) {
+		Arrays.fill(visited, 0L);
+		visitedCount = 0;
+		tourLength = 0;
+		visit(firstLocationKey);
+	}
+
+	public void visit(int locationKey) {
+		visited[locationKey >>> 6] |= 1L << locationKey;
+		tour[visitedCount++] = locationKey;
+		currentLocationKey = locationKey;
+	}
+
+	public boolean isVisited(int locationKey) {
+		return (visited[locationKey >>> 6] & (1L << locationKey)) != 0;
+	}
+
+	public int nextUnvisited(int fromLocationKey) {
+		int word = fromLocationKey >>> 6;
+		if (word >= visited.length) {
+			return -1;
+		}
 		
+		long unvisited = ~visited[word] & (-1L << fromLocationKey);
+		while (unvisited == 0) {
+			if (++word == visited.length) {
+				return -1;
+			}
+			unvisited = ~visited[word];
+		}
+		
+		int locationKey = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+		return locationKey < tour.length ? locationKey : -1;
+	}
+
+	public int getCapacity() {
+		return tour.length;
 	}
 
-	public Ant(int currentLocationKey, Set<Integer> visited, List<Integer> visitedLocationsInOrder) {
-		this.currentLocationKey = currentLocationKey;
-		this.visited = visited;
-		this.visitedLocationsInOrder = visitedLocationsInOrder;
+	public int getVisitedCount() {
+		return visitedCount;
+	}
+
+	public boolean isTourComplete() {
+		return visitedCount == tour.length;
+	}
+
+	public double getTourLength() {
+		return tourLength;
+	}
+
+	public void setTourLength(double tourLength) {
+		this.tourLength = tourLength;
+	}
+
+	public void addToTourLength(double distance) {
+		tourLength += distance;
 	}
 
 	public int getCurrentLocationKey() {
 		return currentLocationKey;
 	}
 
-	public void setCurrentLocationKey(int currentLocationKey) {
-		this.currentLocationKey = currentLocationKey;
+	public int[] getTour() {
+		return tour;
 	}
 
-	public Set<Integer> getVisited() {
-		return visited;
+	public int getLocationAt(int index) {
+		return tour[index];
 	}
 
-	public void setVisited(Set<Integer> visited) {
-		this.visited = visited;
+	public int[] getCandidates() {
+		return candidates;
+	}
+
+	public double[] getCumulativeWeights() {
+		return cumulativeWeights;
 	}
 
 	public List<Integer> getVisitedLocationsInOrder() {
+		List<Integer> visitedLocationsInOrder = new ArrayList<>(visitedCount);
+		for (int i = 0; i < visitedCount; i++) {
+			visitedLocationsInOrder.add(tour[i]);
+		}
 		return visitedLocationsInOrder;
 	}
 
-	public void setVisitedLocationsInOrder(List<Integer> visitedLocationsInOrder) {
-		this.visitedLocationsInOrder = visitedLocationsInOrder;
-	}
-	
 }
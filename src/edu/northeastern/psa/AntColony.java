@@ -1,30 +1,172 @@
 package edu.northeastern.psa;
 
+import info6205.Graph.Utils.DistanceMatrix;
+import info6205.Graph.Utils.PlanarProjection;
+
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class AntColony {
+	public enum Variant {
+		ANT_SYSTEM,
+		MAX_MIN_ANT_SYSTEM,
+		ANT_COLONY_SYSTEM,
+		POPULATION_BASED
+	}
+	
+	public enum PopulationPolicy {
+		FIFO,
+		QUALITY
+	}
+	
+	public enum StopReason {
+		GENERATION_LIMIT,
+		TIME_LIMIT,
+		TARGET_REACHED,
+		NO_IMPROVEMENT,
+		STAGNATION
+	}
+	
+	public enum LocalSearchMode {
+		EVERY_ANT,
+		ITERATION_BEST
+	}
+	
 	private double[][] graph;
+	// Colonies read from a file compute distances from the coordinates until a dense table is needed.
+	private DistanceMatrix locationDistances;
+	private final Distances distances = this::distance;
 	private List<Location> coords;
 	private double[][] rewardMatrix;
 	private double alpha = 1;
 	private double beta = 7;
 	private double evaporationRate = 0.1;
 	private static Random r = new Random();
+	// Lazy evaporation renormalises once pheromoneScale^alpha falls below 1e-30, so relative trails raised to
+	// alpha stay near 1e30 at most and the roulette products keep far away from overflow.
+	private static final double MAX_SCALED_TRAIL_DECADES = 30;
 	private String fileName;
+	private PlanarProjection projection;
+	private Ant[] ants;
+	private double[][] heuristicMatrix;
+	private double[][] choiceInfo;
+	private boolean choiceInfoStale = true;
+	private int candidateListSize = 0;
+	private int[][] candidateLists;
+	private ExecutorService executor;
+	private SplittableRandom masterRandom;
+	private SplittableRandom[] antRandoms;
+	private List<Callable<Void>> constructionTasks;
+	private boolean lazyEvaporation = false;
+	private double pheromoneScale = 1;
+	private Variant variant = Variant.ANT_SYSTEM;
+	private double pBest = 0.05;
+	private int globalBestFrequency = 10;
+	private int stagnationLimit = 100;
+	private double tauMin;
+	private double tauMax;
+	private double q0 = 0.9;
+	private double localEvaporationRate = 0.1;
+	private double tau0;
+	private LocalSearch localSearch;
+	private int[][] localSearchLists;
+	private LocalSearchMode localSearchMode = LocalSearchMode.ITERATION_BEST;
+	private boolean sparsePheromoneEnabled = false;
+	private SparsePheromone sparsePheromone;
+	private int populationSize = 5;
+	private PopulationPolicy populationPolicy = PopulationPolicy.FIFO;
+	private int[][] populationTours;
+	private double[] populationLengths;
+	private int populationCount;
+	private int populationHead;
+	private double populationDeposit;
+	private List<int[]> warmStartTours = new ArrayList<>();
+	private long timeLimitMillis = 0;
+	private double targetTourLength = 0;
+	private int maxGenerationsWithoutImprovement = 0;
+	private double branchingFactorLimit = 0;
+	private double branchingLambda = 0.05;
+	private int stagnationCheckInterval = 10;
+	private StopReason stopReason;
+	private int[] bestTour;
+	private double bestTourLength;
+	private boolean foundGlobalBest;
+	private int generation;
+	private int lastImprovement;
+	private int lastRestart;
+	private long runStartTime;
 
+	// Rows are grown and rewritten in place as locations come and go, so callers get a copy trimmed to the
+	// current locations. A colony without a table builds one for the caller and does not keep it.
 	public double[][] getGraph() {
+		if (graph == null) {
+			return locationDistances == null ? null : locationDistances.build();
+		}
+		double[][] copy = new double[graph.length][];
+		for (int i = 0; i < graph.length; i++) {
+			copy[i] = Arrays.copyOf(graph[i], graph.length);
+		}
+		return copy;
+	}
+	
+	// The matrix itself, for the islands of a MultiColony that share it.
+	double[][] getSharedGraph() {
 		return graph;
 	}
 
+	// Islands of a MultiColony read their distances from the first island's table or coordinates.
+	void shareDistances(AntColony other) {
+		this.graph = other.graph;
+		this.locationDistances = other.locationDistances;
+		this.candidateLists = null;
+		this.localSearchLists = null;
+		this.heuristicMatrix = null;
+		this.choiceInfoStale = true;
+	}
+
+	boolean sharesDistancesWith(AntColony other) {
+		return graph == other.graph && locationDistances == other.locationDistances;
+	}
+
 	public void setGraph(double[][] graph) {
 		this.graph = graph;
+		this.locationDistances = null;
+		this.candidateLists = null;
+		this.localSearchLists = null;
+		this.heuristicMatrix = null;
+		this.choiceInfoStale = true;
+		if (sparsePheromone != null) {
+			sparsePheromone.updateHeuristics(distances, beta);
+		}
+	}
+
+	public int getLocationCount() {
+		return graph != null ? graph.length : locationDistances.size();
+	}
+
+	private double distance(int i, int j) {
+		return graph != null ? graph[i][j] : locationDistances.distance(i, j);
+	}
+
+	// Dense trails and choice info are n^2 anyway, and location updates grow the table in place.
+	void ensureGraph() {
+		if (graph == null && locationDistances != null) {
+			graph = locationDistances.build();
+			locationDistances = null;
+		}
 	}
 
 	public List<Location> getCoords() {
@@ -35,12 +177,34 @@ public class AntColony {
 		this.coords = coords;
 	}
 
+	public PlanarProjection getProjection() {
+		return projection;
+	}
+
+	public void setProjection(PlanarProjection projection) {
+		this.projection = projection;
+	}
+
 	public double[][] getRewardMatrix() {
+		ensureRewardMatrix();
+		if (pheromoneScale != 1) {
+			applyPheromoneScale();
+		}
 		return rewardMatrix;
 	}
 
 	public void setRewardMatrix(double[][] rewardMatrix) {
 		this.rewardMatrix = rewardMatrix;
+		this.pheromoneScale = 1;
+		this.choiceInfoStale = true;
+	}
+
+	public double getPheromone(int x, int y) {
+		if (sparsePheromone != null) {
+			return sparsePheromone.get(x, y);
+		}
+		ensureRewardMatrix();
+		return rewardMatrix[x][y] * pheromoneScale;
 	}
 
 	public double getAlpha() {
@@ -49,6 +213,7 @@ public class AntColony {
 
 	public void setAlpha(double alpha) {
 		this.alpha = alpha;
+		this.choiceInfoStale = true;
 	}
 
 	public double getBeta() {
@@ -57,6 +222,8 @@ public class AntColony {
 
 	public void setBeta(double beta) {
 		this.beta = beta;
+		this.heuristicMatrix = null;
+		this.choiceInfoStale = true;
 	}
 
 	public double getEvaporationRate() {
@@ -67,6 +234,254 @@ public class AntColony {
 		this.evaporationRate = evaporationRate;
 	}
 
+	public int getCandidateListSize() {
+		return candidateListSize;
+	}
+
+	public void setCandidateListSize(int candidateListSize) {
+		this.candidateListSize = candidateListSize;
+		this.candidateLists = null;
+	}
+
+	public int[][] getCandidateLists() {
+		return candidateLists;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+		this.constructionTasks = null;
+	}
+
+	public void setSeed(long seed) {
+		this.masterRandom = new SplittableRandom(seed);
+	}
+
+	public boolean isLazyEvaporation() {
+		return lazyEvaporation;
+	}
+
+	public void setLazyEvaporation(boolean lazyEvaporation) {
+		if (!lazyEvaporation && pheromoneScale != 1) {
+			applyPheromoneScale();
+		}
+		this.lazyEvaporation = lazyEvaporation;
+	}
+
+	public Variant getVariant() {
+		return variant;
+	}
+
+	public void setVariant(Variant variant) {
+		if (variant != Variant.ANT_SYSTEM && pheromoneScale != 1) {
+			applyPheromoneScale();
+		}
+		this.variant = variant;
+	}
+
+	public double getPBest() {
+		return pBest;
+	}
+
+	public void setPBest(double pBest) {
+		this.pBest = pBest;
+	}
+
+	public int getGlobalBestFrequency() {
+		return globalBestFrequency;
+	}
+
+	public void setGlobalBestFrequency(int globalBestFrequency) {
+		this.globalBestFrequency = globalBestFrequency;
+	}
+
+	public int getStagnationLimit() {
+		return stagnationLimit;
+	}
+
+	public void setStagnationLimit(int stagnationLimit) {
+		this.stagnationLimit = stagnationLimit;
+	}
+
+	public double getTauMin() {
+		return tauMin;
+	}
+
+	public double getTauMax() {
+		return tauMax;
+	}
+
+	public double getQ0() {
+		return q0;
+	}
+
+	public void setQ0(double q0) {
+		this.q0 = q0;
+	}
+
+	public double getLocalEvaporationRate() {
+		return localEvaporationRate;
+	}
+
+	public void setLocalEvaporationRate(double localEvaporationRate) {
+		this.localEvaporationRate = localEvaporationRate;
+	}
+
+	public double getTau0() {
+		return tau0;
+	}
+
+	public LocalSearch getLocalSearch() {
+		return localSearch;
+	}
+
+	public void setLocalSearch(LocalSearch localSearch) {
+		this.localSearch = localSearch;
+		this.localSearchLists = null;
+	}
+
+	public LocalSearchMode getLocalSearchMode() {
+		return localSearchMode;
+	}
+
+	public void setLocalSearchMode(LocalSearchMode localSearchMode) {
+		this.localSearchMode = localSearchMode;
+	}
+
+	public boolean isSparsePheromone() {
+		return sparsePheromoneEnabled;
+	}
+
+	public void setSparsePheromone(boolean sparsePheromoneEnabled) {
+		this.sparsePheromoneEnabled = sparsePheromoneEnabled;
+		if (!sparsePheromoneEnabled) {
+			this.sparsePheromone = null;
+			this.choiceInfoStale = true;
+			ensureRewardMatrix();
+		}
+	}
+
+	public SparsePheromone getSparsePheromone() {
+		return sparsePheromone;
+	}
+
+	public int getPopulationSize() {
+		return populationSize;
+	}
+
+	public void setPopulationSize(int populationSize) {
+		if (populationSize < 1) {
+			throw new IllegalArgumentException("Population size must be at least 1, got " + populationSize);
+		}
+		this.populationSize = populationSize;
+		this.populationTours = null;
+	}
+
+	public PopulationPolicy getPopulationPolicy() {
+		return populationPolicy;
+	}
+
+	public void setPopulationPolicy(PopulationPolicy populationPolicy) {
+		this.populationPolicy = populationPolicy;
+	}
+
+	public int getPopulationCount() {
+		return populationCount;
+	}
+
+	public List<int[]> getWarmStartTours() {
+		return warmStartTours;
+	}
+
+	public void addWarmStartTour(int[] tour) {
+		int n = getLocationCount();
+		boolean[] seen = new boolean[n];
+		if (tour.length != n) {
+			throw new IllegalArgumentException("Warm start tour has " + tour.length + " locations, expected " + n);
+		}
+		for (int location : tour) {
+			if (location < 0 || location >= n || seen[location]) {
+				throw new IllegalArgumentException("Warm start tour is not a permutation of the locations");
+			}
+			seen[location] = true;
+		}
+		warmStartTours.add(tour.clone());
+	}
+
+	public void clearWarmStartTours() {
+		warmStartTours.clear();
+	}
+
+	public long getTimeLimitMillis() {
+		return timeLimitMillis;
+	}
+
+	public void setTimeLimitMillis(long timeLimitMillis) {
+		this.timeLimitMillis = timeLimitMillis;
+	}
+
+	public double getTargetTourLength() {
+		return targetTourLength;
+	}
+
+	public void setTargetTourLength(double targetTourLength) {
+		this.targetTourLength = targetTourLength;
+	}
+
+	public int getMaxGenerationsWithoutImprovement() {
+		return maxGenerationsWithoutImprovement;
+	}
+
+	public void setMaxGenerationsWithoutImprovement(int maxGenerationsWithoutImprovement) {
+		this.maxGenerationsWithoutImprovement = maxGenerationsWithoutImprovement;
+	}
+
+	public double getBranchingFactorLimit() {
+		return branchingFactorLimit;
+	}
+
+	public void setBranchingFactorLimit(double branchingFactorLimit) {
+		this.branchingFactorLimit = branchingFactorLimit;
+	}
+
+	public double getBranchingLambda() {
+		return branchingLambda;
+	}
+
+	public void setBranchingLambda(double branchingLambda) {
+		this.branchingLambda = branchingLambda;
+	}
+
+	public int getStagnationCheckInterval() {
+		return stagnationCheckInterval;
+	}
+
+	public void setStagnationCheckInterval(int stagnationCheckInterval) {
+		if (stagnationCheckInterval < 1) {
+			throw new IllegalArgumentException("Stagnation check interval must be at least 1, got " + stagnationCheckInterval);
+		}
+		this.stagnationCheckInterval = stagnationCheckInterval;
+	}
+
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	public int[] getBestTour() {
+		return bestTour;
+	}
+
+	public double getBestTourLength() {
+		return bestTourLength;
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+
 	public static Random getR() {
 		return r;
 	}
@@ -80,72 +495,50 @@ public class AntColony {
 	}
 
 	public AntColony(String fileName) {
+		this(fileName, DistanceMatrix.Metric.HAVERSINE);
+	}
+
+	public AntColony(String fileName, DistanceMatrix.Metric metric) {
         coords = new ArrayList<>();
 		this.fileName = fileName;
-        int numLocations = readFile();
+        CrimeLocationReader locations = readLocations();
         
-        if (numLocations == -1) {
+        if (locations == null) {
         	System.out.println("Something went wrong while reading the file");
         	return;
         }
-            
-        graph = new double[numLocations][numLocations];
-        rewardMatrix = new double[numLocations][numLocations];
-        
-        for (int i = 0; i < numLocations; i++) {
-        	for (int j = 0; j < numLocations; j++) {
-        		rewardMatrix[i][j] = 1;
-        	}
-        }
         
-        
-        for (int i = 0; i < coords.size(); i++) {
-        	double lat1 = coords.get(i).getLat();
-            double lon1 = coords.get(i).getLon();
+        int numLocations = locations.size();
+        double[] latitudes = locations.getLatitudes();
+        double[] longitudes = locations.getLongitudes();
             
-        	for (int j = i + 1; j < coords.size(); j++) {
-        		double lat2 = coords.get(j).getLat();
-                double lon2 = coords.get(j).getLon();
-                
-                double distance = getHaversineDistance(lat1, lat2, lon1, lon2);
-            	
-            	graph[i][j] = distance;
-            	graph[j][i] = distance;
-        	}
+        // Same radius as getHaversineDistance and the Christofides pipeline. The table is built in parallel when first needed.
+        locationDistances = new DistanceMatrix(latitudes, longitudes, DistanceMatrix.EARTH_RADIUS_KM, metric);
+        projection = locationDistances.getProjection();
+        
+        if (projection != null) {
+        	System.out.println("Planar projection error bound vs haversine: " + projection.getAbsoluteErrorBound()
+        			+ " km (" + projection.getRelativeErrorBound() * 100 + "%)");
         }
 	}
 	
 	public int readFile() {
-		String line;
-		Set<String> set = new HashSet<>();
-		int numLocations = 0;
-		
-		try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            br.readLine();
-            
-            while ((line = br.readLine()) != null) {
-                String[] columns = line.split(",");
-                String crimeId = columns[0];
-                double lat = Double.parseDouble(columns[2]);
-                double lon = Double.parseDouble(columns[1]);
-                
-                String representation = lat + " " + lon;
-                if (set.contains(representation)) {
-                	continue;
-                }
-                set.add(representation);
-
-                Location curr = new Location(lat, lon, crimeId);
-                coords.add(curr);
-                numLocations += 1;
-            }
-            
-            return numLocations;
-        } 
-        catch (IOException e) {
-            e.printStackTrace();
-            return -1;
-        }
+		CrimeLocationReader locations = readLocations();
+		return locations == null ? -1 : locations.size();
+	}
+	
+	private CrimeLocationReader readLocations() {
+		try {
+			CrimeLocationReader locations = CrimeLocationReader.read(fileName);
+			for (int i = 0; i < locations.size(); i++) {
+				coords.add(new Location(locations.getLatitude(i), locations.getLongitude(i), locations.getCrimeId(i)));
+			}
+			return locations;
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 	
 	public double getHaversineDistance(double lat1, double lat2, double lon1, double lon2) {
@@ -155,168 +548,1455 @@ public class AntColony {
                 Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
                         Math.sin(dLon / 2) * Math.sin(dLon / 2);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = c * 6371.01;
+        double distance = c * DistanceMatrix.EARTH_RADIUS_KM;
         
         return distance;
 	}
 	
 	public double getWeightage(int x, int y) {
-		double pheromone = Math.pow(rewardMatrix[x][y], alpha);
-		double distance = graph[x][y];
-		return pheromone * Math.pow(1.0 / distance, beta);
+		if (choiceInfoStale) {
+			updateChoiceInfo();
+		}
+		if (sparsePheromone != null) {
+			int index = sparsePheromone.indexOf(x, y);
+			if (index != -1) {
+				return sparsePheromone.getChoice(index);
+			}
+			double pheromone = sparsePheromone.getDefaultValue();
+			return (alpha == 1 ? pheromone : Math.pow(pheromone, alpha)) * Math.pow(1.0 / distance(x, y), beta);
+		}
+		return choiceInfo[x][y];
 	}
 	
-	public double travellingSalesman(int antCount, int genCount, List<String> generationWiseStats) {
-		double globalMinCost = 0;
-		List<Integer> globalBestRoute = null;
+	public void updateHeuristicMatrix() {
+		ensureGraph();
+		int n = graph.length;
+		if (heuristicMatrix == null || heuristicMatrix.length != n) {
+			heuristicMatrix = new double[n][n];
+		}
 		
-		for (int generations = 0; generations < genCount; generations++) {
-			Ant[] ants = new Ant[antCount];
-			
-			double minCost = 0;
-			List<Integer> bestRoute = null;
+		for (int i = 0; i < n; i++) {
+			heuristicMatrix[i][i] = 0;
+			for (int j = i + 1; j < n; j++) {
+				double heuristic = Math.pow(1.0 / graph[i][j], beta);
+				heuristicMatrix[i][j] = heuristic;
+				heuristicMatrix[j][i] = heuristic;
+			}
+		}
+	}
+	
+	public void updateChoiceInfo() {
+		if (sparsePheromone != null) {
+			sparsePheromone.updateChoices(alpha);
+			choiceInfoStale = false;
+			return;
+		}
+		
+		ensureGraph();
+		if (heuristicMatrix == null || heuristicMatrix.length != graph.length) {
+			updateHeuristicMatrix();
+		}
+		ensureRewardMatrix();
+		
+		int n = graph.length;
+		if (choiceInfo == null || choiceInfo.length != n) {
+			choiceInfo = new double[n][n];
+		}
+		
+		for (int i = 0; i < n; i++) {
+			double[] pheromoneRow = rewardMatrix[i];
+			double[] heuristicRow = heuristicMatrix[i];
+			double[] choiceRow = choiceInfo[i];
 			
-			for (int i = 0; i < antCount; i++) {
-				int firstVertex = r.nextInt(graph.length);
-				
-				Set<Integer> visited = new HashSet<>();
-				List<Integer> visitedInOrder = new ArrayList<>();
-				visited.add(firstVertex);
-				visitedInOrder.add(firstVertex);
-				
-				ants[i] = new Ant(firstVertex, visited, visitedInOrder);
-				int currentVertex = firstVertex;
-				
-				while(ants[i].getVisited().size() < graph.length) {					
-					double[][] probabilities = generateProbabilities(currentVertex, ants[i]);
-
-					int selectedLocation = generateRandomVertex(ants[i], currentVertex, probabilities);
-					
-					currentVertex = selectedLocation;
-				}
-				
-				double currTourCost = getTourCost(ants[i]);
-				
-				if (bestRoute == null) {
-					minCost = currTourCost;
-					bestRoute = ants[i].getVisitedLocationsInOrder();
-				}
-				else if (currTourCost < minCost) {
-					minCost = currTourCost;
-					bestRoute = ants[i].getVisitedLocationsInOrder();
+			if (alpha == 1) {
+				for (int j = 0; j < n; j++) {
+					choiceRow[j] = pheromoneRow[j] * heuristicRow[j];
 				}
 			}
-			System.out.println("Generation : "  + generations + ", minCost = " + minCost);
-
-			generationWiseStats.add((generations + 1) + "," + minCost);
-			
-			alterRewardMatrix(ants);
-			
-			if (globalBestRoute == null || minCost < globalMinCost) {
-				globalMinCost = minCost;
-				globalBestRoute = bestRoute;
+			else {
+				for (int j = 0; j < n; j++) {
+					choiceRow[j] = Math.pow(pheromoneRow[j], alpha) * heuristicRow[j];
+				}
 			}
 		}
-		
-//		this.printRoute(globalBestRoute);
-		System.out.println("Min cost global: " + globalMinCost * 1000 + " meters");
-		return globalMinCost;
+		choiceInfoStale = false;
 	}
 	
-	public void printRoute(List<Integer> route) {
-		for (int i = 0; i < route.size(); i++) {
-			System.out.print(route.get(i) + "-->");
+	public double travellingSalesman(int antCount, int genCount, List<String> generationWiseStats) {
+		startRun(antCount);
+		runGenerations(antCount, genCount, generationWiseStats);
+		
+		if (stopReason == null) {
+			stopReason = StopReason.GENERATION_LIMIT;
 		}
-		System.out.println(route.get(0));
+//		this.printRoute(bestTour);
+		System.out.println("Min cost global: " + bestTourLength * 1000 + " meters");
+		return bestTourLength;
 	}
 	
-	public double getTourCost(Ant ant) {
-		double score = 0;
-		List<Integer> visitedLocations = ant.getVisitedLocationsInOrder();
-		for (int i = 1; i < visitedLocations.size(); i++) {
-			score += graph[visitedLocations.get(i)][visitedLocations.get(i - 1)];
+	public void startRun(int antCount) {
+		if (!sparsePheromoneEnabled) {
+			ensureGraph();
+		}
+		bestTour = new int[getLocationCount()];
+		bestTourLength = 0;
+		foundGlobalBest = false;
+		generation = 0;
+		lastImprovement = 0;
+		lastRestart = 0;
+		runStartTime = System.currentTimeMillis();
+		stopReason = null;
+		getAntPool(antCount);
+		if (candidateListSize > 0 && (candidateLists == null || candidateLists.length != getLocationCount())) {
+			buildCandidateLists();
+		}
+		if (sparsePheromoneEnabled) {
+			startSparsePheromone();
+		}
+		else {
+			ensureRewardMatrix();
+		}
+		if (!warmStartTours.isEmpty()) {
+			applyWarmStart(antCount);
+		}
+		else if (variant == Variant.MAX_MIN_ANT_SYSTEM) {
+			updatePheromoneBounds(getNearestNeighbourTourLength(0));
+			resetPheromone(tauMax);
+		}
+		else if (variant == Variant.ANT_COLONY_SYSTEM) {
+			tau0 = 1.0 / (getLocationCount() * getNearestNeighbourTourLength(0));
+			resetPheromone(tau0);
+		}
+		else if (variant == Variant.POPULATION_BASED) {
+			clearPopulation();
+		}
+		if (choiceInfoStale) {
+			updateChoiceInfo();
 		}
-
-		score += graph[visitedLocations.get(0)][visitedLocations.get(visitedLocations.size() - 1)];
-
-		return score;
 	}
 	
-	public int generateRandomVertex(Ant ant, int currentVertex, double[][] probabilities) {
-		double randomNumber = r.nextDouble();
-		
-		int selectedLocation = currentVertex;
-		
-		for (int nextVertex = 0; nextVertex < probabilities.length; nextVertex++) {
-			if (randomNumber <= probabilities[nextVertex][0]) {
-				selectedLocation = (int)probabilities[nextVertex][1];
-				break;
+	private void applyWarmStart(int antCount) {
+		double[] lengths = new double[warmStartTours.size()];
+		int bestSeed = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = getTourLength(warmStartTours.get(i));
+			if (lengths[i] < lengths[bestSeed]) {
+				bestSeed = i;
 			}
-		}					
-		ant.getVisited().add(selectedLocation);
-		ant.getVisitedLocationsInOrder().add(selectedLocation);
-		
-		return selectedLocation;
-	}
-	
-	public double[][] generateProbabilities(int currentVertex, Ant ant) {
-		double[][] probabilities = new double[graph.length - ant.getVisited().size()][2];
-
-		double[] row = graph[currentVertex];
-		double denominator = 0;
+		}
+		double seedLength = lengths[bestSeed];
 		
-		for (int j = 0; j < row.length; j++) {
-			if (ant.getVisited().contains(j) || currentVertex == j) {
-				continue;
-			}
-			
-			denominator += getWeightage(currentVertex, j);
+		// Initial trails follow the usual rule for each variant, with the best seed standing in for L_nn.
+		// MAX-MIN trails start at tauMax, where a deposit would be clamped away, so they are evaporated once first
+		// and the seeds are laid as the best tours of that first update.
+		if (variant == Variant.MAX_MIN_ANT_SYSTEM) {
+			updatePheromoneBounds(seedLength);
+			tau0 = Math.max(tauMax * (1 - evaporationRate), tauMin);
+		}
+		else if (variant == Variant.ANT_COLONY_SYSTEM) {
+			tau0 = 1.0 / (getLocationCount() * seedLength);
+		}
+		else if (variant == Variant.POPULATION_BASED) {
+			tau0 = 1.0 / (getLocationCount() - 1);
+		}
+		else {
+			tau0 = antCount / seedLength;
 		}
 		
-		int idx = 0;
+		if (variant == Variant.POPULATION_BASED) {
+			clearPopulation();
+		}
+		else {
+			resetPheromone(tau0);
+		}
 		
-		for (int j = 0; j < row.length; j++) {
-			if (ant.getVisited().contains(j) || currentVertex == j) {
-				continue;
+		for (int i = 0; i < lengths.length; i++) {
+			int[] seed = warmStartTours.get(i);
+			if (variant == Variant.ANT_COLONY_SYSTEM) {
+				alterRewardMatrixGlobalBest(seed, lengths[i]);
 			}
-					
-			if (idx == 0) {
-				probabilities[idx] = new double[] {getWeightage(currentVertex, j) / denominator, j};
+			else if (variant == Variant.POPULATION_BASED) {
+				addToPopulation(seed, lengths[i]);
 			}
 			else {
-				probabilities[idx] = new double[] {probabilities[idx - 1][0] + (getWeightage(currentVertex, j) / denominator) , j};
+				depositTour(seed, lengths[i]);
 			}
-
-			
-			idx += 1;
 		}
 		
-		return probabilities;
+		System.arraycopy(warmStartTours.get(bestSeed), 0, bestTour, 0, bestTour.length);
+		bestTourLength = seedLength;
+		foundGlobalBest = true;
 	}
 	
-	public void alterRewardMatrix(Ant[] ants) {
-		for (int i = 0; i < rewardMatrix.length; i++) {
-			for (int j = 0; j < rewardMatrix.length; j++) {
-				if (i == j) {
-					continue;
-				}
-				rewardMatrix[i][j] *= (1 - evaporationRate);
-			}
+	private void startSparsePheromone() {
+		if (candidateLists == null) {
+			throw new IllegalStateException("Sparse pheromone needs candidate lists");
 		}
-		
-		for (Ant ant: ants) {
-			double score = getTourCost(ant);
-			
-			List<Integer> visitedLocations = ant.getVisitedLocationsInOrder();
-			
-			for (int i = 1; i < visitedLocations.size(); i++) {
-				rewardMatrix[visitedLocations.get(i)][visitedLocations.get(i - 1)] += 1.0 / score;
-				rewardMatrix[visitedLocations.get(i - 1)][visitedLocations.get(i)] += 1.0 / score;
-			}
-			rewardMatrix[visitedLocations.get(0)][visitedLocations.get(visitedLocations.size() - 1)] += 1.0 / score;
-			rewardMatrix[visitedLocations.get(visitedLocations.size() - 1)][visitedLocations.get(0)] += 1.0 / score;
+		if (variant != Variant.ANT_SYSTEM && variant != Variant.MAX_MIN_ANT_SYSTEM) {
+			throw new IllegalStateException("Sparse pheromone supports only the ant system and MAX-MIN variants");
 		}
-	}
+		
+		sparsePheromone = new SparsePheromone(candidateLists, 1);
+		sparsePheromone.updateHeuristics(distances, beta);
+		
+		// The dense trails are never read in sparse mode, so let them go.
+		rewardMatrix = null;
+		choiceInfo = null;
+		heuristicMatrix = null;
+		pheromoneScale = 1;
+		choiceInfoStale = true;
+	}
+	
+	public int runGenerations(int antCount, int genCount, List<String> generationWiseStats) {
+		Ant[] ants = getAntPool(antCount);
+		int generationsRun = 0;
+		
+		while (generationsRun < genCount && stopReason == null) {
+			if (choiceInfoStale) {
+				updateChoiceInfo();
+			}
+			constructTours(antCount);
+			
+			long localSearchTime = 0;
+			double localSearchGain = 0;
+			if (localSearch != null) {
+				long localSearchStart = System.nanoTime();
+				localSearchGain = applyLocalSearch(ants, antCount);
+				localSearchTime = System.nanoTime() - localSearchStart;
+			}
+			
+			double minCost = 0;
+			double totalCost = 0;
+			int bestAnt = -1;
+			
+			for (int i = 0; i < antCount; i++) {
+				double currTourCost = ants[i].getTourLength();
+				totalCost += currTourCost;
+				
+				if (bestAnt == -1) {
+					minCost = currTourCost;
+					bestAnt = i;
+				}
+				else if (currTourCost < minCost) {
+					minCost = currTourCost;
+					bestAnt = i;
+				}
+			}
+			System.out.println("Generation : "  + generation + ", minCost = " + minCost);
+
+			generationWiseStats.add((generation + 1) + "," + minCost + "," + (totalCost / antCount)
+					+ "," + (localSearchTime / 1e6) + "," + localSearchGain);
+			
+			if (!foundGlobalBest || minCost < bestTourLength) {
+				bestTourLength = minCost;
+				System.arraycopy(ants[bestAnt].getTour(), 0, bestTour, 0, bestTour.length);
+				foundGlobalBest = true;
+				lastImprovement = generation;
+			}
+			
+			if (variant == Variant.MAX_MIN_ANT_SYSTEM) {
+				updatePheromoneBounds(bestTourLength);
+				
+				if (stagnationLimit > 0 && generation - Math.max(lastImprovement, lastRestart) >= stagnationLimit) {
+					resetPheromone(tauMax);
+					lastRestart = generation;
+				}
+				else if (globalBestFrequency > 0 && (generation + 1) % globalBestFrequency == 0) {
+					alterRewardMatrixMaxMin(bestTour, bestTourLength);
+				}
+				else {
+					alterRewardMatrixMaxMin(ants[bestAnt].getTour(), minCost);
+				}
+				updateChoiceInfo();
+			}
+			else if (variant == Variant.ANT_COLONY_SYSTEM) {
+				alterRewardMatrixGlobalBest(bestTour, bestTourLength);
+			}
+			else if (variant == Variant.POPULATION_BASED) {
+				addToPopulation(ants[bestAnt].getTour(), minCost);
+			}
+			else {
+				alterRewardMatrix(ants);
+				if (!lazyEvaporation || choiceInfoStale) {
+					updateChoiceInfo();
+				}
+			}
+			
+			stopReason = checkStopConditions(generation, lastImprovement, runStartTime);
+			generation += 1;
+			generationsRun += 1;
+		}
+		
+		return generationsRun;
+	}
+	
+	public boolean acceptMigrant(int[] tour, double tourLength) {
+		if (foundGlobalBest && tourLength >= bestTourLength) {
+			return false;
+		}
+		
+		System.arraycopy(tour, 0, bestTour, 0, bestTour.length);
+		bestTourLength = tourLength;
+		foundGlobalBest = true;
+		lastImprovement = generation;
+		
+		if (variant == Variant.ANT_COLONY_SYSTEM) {
+			alterRewardMatrixGlobalBest(bestTour, bestTourLength);
+			return true;
+		}
+		if (variant == Variant.POPULATION_BASED) {
+			addToPopulation(bestTour, bestTourLength);
+			return true;
+		}
+		if (variant == Variant.MAX_MIN_ANT_SYSTEM) {
+			updatePheromoneBounds(bestTourLength);
+		}
+		depositTour(bestTour, bestTourLength);
+		return true;
+	}
+	
+	public void clearPopulation() {
+		int n = getLocationCount();
+		if (populationTours == null || populationTours.length != populationSize
+				|| (populationSize > 0 && populationTours[0].length != n)) {
+			populationTours = new int[populationSize][n];
+			populationLengths = new double[populationSize];
+		}
+		populationCount = 0;
+		populationHead = 0;
+		
+		// Trails start at 1/(n-1) and a full population raises an edge to at most 1.
+		double initialPheromone = 1.0 / (n - 1);
+		populationDeposit = (1 - initialPheromone) / populationSize;
+		resetPheromone(initialPheromone);
+	}
+	
+	public boolean addToPopulation(int[] tour, double tourLength) {
+		if (populationTours == null) {
+			clearPopulation();
+		}
+		
+		int slot;
+		if (populationCount < populationSize) {
+			slot = (populationHead + populationCount) % populationSize;
+			populationCount += 1;
+		}
+		else if (populationPolicy == PopulationPolicy.FIFO) {
+			slot = populationHead;
+			populationHead = (populationHead + 1) % populationSize;
+			updatePopulationEdges(populationTours[slot], -populationDeposit);
+		}
+		else {
+			slot = 0;
+			for (int i = 1; i < populationSize; i++) {
+				if (populationLengths[i] > populationLengths[slot]) {
+					slot = i;
+				}
+			}
+			if (tourLength >= populationLengths[slot]) {
+				return false;
+			}
+			updatePopulationEdges(populationTours[slot], -populationDeposit);
+		}
+		
+		if (populationTours[slot].length != tour.length) {
+			populationTours[slot] = new int[tour.length];
+		}
+		System.arraycopy(tour, 0, populationTours[slot], 0, tour.length);
+		populationLengths[slot] = tourLength;
+		updatePopulationEdges(populationTours[slot], populationDeposit);
+		return true;
+	}
+	
+	private void updatePopulationEdges(int[] tour, double amount) {
+		boolean updateChoices = !choiceInfoStale;
+		
+		for (int i = 0; i < tour.length; i++) {
+			int from = tour[i];
+			int to = tour[i + 1 == tour.length ? 0 : i + 1];
+			rewardMatrix[from][to] += amount;
+			rewardMatrix[to][from] += amount;
+			
+			if (updateChoices) {
+				updateChoiceInfo(from, to);
+				updateChoiceInfo(to, from);
+			}
+		}
+	}
+	
+	public int[][] getPopulationTours() {
+		int[][] tours = new int[populationCount][];
+		for (int i = 0; i < populationCount; i++) {
+			tours[i] = populationTours[(populationHead + i) % populationSize].clone();
+		}
+		return tours;
+	}
+	
+	public double[] getPopulationLengths() {
+		double[] lengths = new double[populationCount];
+		for (int i = 0; i < populationCount; i++) {
+			lengths[i] = populationLengths[(populationHead + i) % populationSize];
+		}
+		return lengths;
+	}
+	
+	public void restorePopulation(int[][] tours, double[] lengths) {
+		clearPopulation();
+		for (int i = 0; i < tours.length; i++) {
+			addToPopulation(tours[i], lengths[i]);
+		}
+	}
+	
+	private void depositTour(int[] tour, double tourLength) {
+		if (sparsePheromone != null) {
+			double maxPheromone = variant == Variant.MAX_MIN_ANT_SYSTEM ? tauMax : Double.MAX_VALUE;
+			depositSparse(tour, 1.0 / tourLength, maxPheromone);
+			return;
+		}
+		
+		double deposit = 1.0 / tourLength / pheromoneScale;
+		boolean updateChoices = !choiceInfoStale;
+		
+		for (int i = 0; i < tour.length; i++) {
+			int from = tour[i];
+			int to = tour[i + 1 == tour.length ? 0 : i + 1];
+			double pheromone = rewardMatrix[from][to] + deposit;
+			if (variant == Variant.MAX_MIN_ANT_SYSTEM) {
+				pheromone = Math.min(pheromone, tauMax);
+			}
+			rewardMatrix[from][to] = pheromone;
+			rewardMatrix[to][from] = pheromone;
+			
+			if (updateChoices) {
+				updateChoiceInfo(from, to);
+				updateChoiceInfo(to, from);
+			}
+		}
+	}
+	
+	private StopReason checkStopConditions(int generation, int lastImprovement, long startTime) {
+		if (targetTourLength > 0 && bestTourLength <= targetTourLength) {
+			return StopReason.TARGET_REACHED;
+		}
+		if (maxGenerationsWithoutImprovement > 0 && generation - lastImprovement >= maxGenerationsWithoutImprovement) {
+			return StopReason.NO_IMPROVEMENT;
+		}
+		if (branchingFactorLimit > 0 && (generation + 1) % stagnationCheckInterval == 0
+				&& getBranchingFactor(branchingLambda) <= branchingFactorLimit) {
+			return StopReason.STAGNATION;
+		}
+		if (timeLimitMillis > 0 && System.currentTimeMillis() - startTime >= timeLimitMillis) {
+			return StopReason.TIME_LIMIT;
+		}
+		return null;
+	}
+	
+	public double getBranchingFactor(double lambda) {
+		if (sparsePheromone != null) {
+			return sparsePheromone.getBranchingFactor(lambda);
+		}
+		
+		ensureRewardMatrix();
+		int n = rewardMatrix.length;
+		long branches = 0;
+		
+		for (int i = 0; i < n; i++) {
+			double[] pheromoneRow = rewardMatrix[i];
+			int[] neighbours = candidateLists == null ? null : candidateLists[i];
+			int count = neighbours == null ? n : neighbours.length;
+			double minPheromone = Double.POSITIVE_INFINITY;
+			double maxPheromone = Double.NEGATIVE_INFINITY;
+			
+			for (int idx = 0; idx < count; idx++) {
+				int j = neighbours == null ? idx : neighbours[idx];
+				if (i == j) {
+					continue;
+				}
+				minPheromone = Math.min(minPheromone, pheromoneRow[j]);
+				maxPheromone = Math.max(maxPheromone, pheromoneRow[j]);
+			}
+			
+			double cutoff = minPheromone + lambda * (maxPheromone - minPheromone);
+			for (int idx = 0; idx < count; idx++) {
+				int j = neighbours == null ? idx : neighbours[idx];
+				if (i != j && pheromoneRow[j] >= cutoff) {
+					branches += 1;
+				}
+			}
+		}
+		
+		return (double) branches / n;
+	}
+	
+	public double applyLocalSearch(Ant[] ants, int antCount) {
+		if (localSearchMode == LocalSearchMode.EVERY_ANT) {
+			double gain = 0;
+			for (int i = 0; i < antCount; i++) {
+				gain += applyLocalSearch(ants[i]);
+			}
+			return gain;
+		}
+		
+		Ant iterationBest = ants[0];
+		for (int i = 1; i < antCount; i++) {
+			if (ants[i].getTourLength() < iterationBest.getTourLength()) {
+				iterationBest = ants[i];
+			}
+		}
+		return applyLocalSearch(iterationBest);
+	}
+	
+	private double applyLocalSearch(Ant ant) {
+		double tourLength = ant.getTourLength();
+		double improvedLength = localSearch.improve(ant.getTour(), tourLength, distances, getLocalSearchLists());
+		ant.setTourLength(improvedLength);
+		return tourLength - improvedLength;
+	}
+	
+	// The search walks the candidate lists when there are some, and otherwise lists of its own size kept here.
+	private int[][] getLocalSearchLists() {
+		if (candidateLists != null) {
+			return candidateLists;
+		}
+		if (localSearchLists == null || localSearchLists.length != getLocationCount()) {
+			localSearchLists = graph != null
+					? buildNearestNeighbourLists(graph, localSearch.getNeighbourListSize())
+					: buildNearestNeighbourLists(distances, getLocationCount(), localSearch.getNeighbourListSize());
+		}
+		return localSearchLists;
+	}
+	
+	private Ant[] getAntPool(int antCount) {
+		int n = getLocationCount();
+		if (ants == null || ants.length != antCount || (antCount > 0 && ants[0].getCapacity() != n)) {
+			ants = new Ant[antCount];
+			for (int i = 0; i < antCount; i++) {
+				ants[i] = new Ant(n);
+			}
+			antRandoms = new SplittableRandom[antCount];
+			constructionTasks = null;
+		}
+		if (masterRandom == null) {
+			masterRandom = new SplittableRandom(r.nextLong());
+		}
+		return ants;
+	}
 	
+	private void constructTours(int antCount) {
+		for (int i = 0; i < antCount; i++) {
+			antRandoms[i] = masterRandom.split();
+		}
+		
+		if (executor == null || variant == Variant.ANT_COLONY_SYSTEM) {
+			for (int i = 0; i < antCount; i++) {
+				constructTour(ants[i], antRandoms[i]);
+			}
+			return;
+		}
+		
+		if (constructionTasks == null) {
+			constructionTasks = new ArrayList<>(antCount);
+			for (int i = 0; i < antCount; i++) {
+				final int antIndex = i;
+				constructionTasks.add(() -> {
+					constructTour(ants[antIndex], antRandoms[antIndex]);
+					return null;
+				});
+			}
+		}
+		
+		try {
+			for (Future<Void> construction : executor.invokeAll(constructionTasks)) {
+				construction.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while constructing tours", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Tour construction failed", e.getCause());
+		}
+	}
+	
+	public void constructTour(Ant ant, SplittableRandom random) {
+		int firstVertex = random.nextInt(getLocationCount());
+		int currentVertex = firstVertex;
+		ant.reset(firstVertex);
+		
+		while (!ant.isTourComplete()) {
+			int nextVertex = selectNextVertex(ant, currentVertex, random);
+			ant.addToTourLength(distance(currentVertex, nextVertex));
+			if (variant == Variant.ANT_COLONY_SYSTEM) {
+				applyLocalPheromoneUpdate(currentVertex, nextVertex);
+			}
+			currentVertex = nextVertex;
+		}
+		ant.addToTourLength(distance(currentVertex, firstVertex));
+		if (variant == Variant.ANT_COLONY_SYSTEM) {
+			applyLocalPheromoneUpdate(currentVertex, firstVertex);
+		}
+	}
+	
+	public void printRoute(List<Integer> route) {
+		for (int i = 0; i < route.size(); i++) {
+			System.out.print(route.get(i) + "-->");
+		}
+		System.out.println(route.get(0));
+	}
+	
+	public void printRoute(int[] route) {
+		for (int i = 0; i < route.length; i++) {
+			System.out.print(route[i] + "-->");
+		}
+		System.out.println(route[0]);
+	}
+	
+	public double getTourCost(Ant ant) {
+		double score = 0;
+		int[] tour = ant.getTour();
+		int tourLength = ant.getVisitedCount();
+		for (int i = 1; i < tourLength; i++) {
+			score += distance(tour[i], tour[i - 1]);
+		}
 
+		score += distance(tour[0], tour[tourLength - 1]);
+
+		return score;
+	}
+	
+	public int selectNextVertex(Ant ant, int currentVertex, SplittableRandom random) {
+		if (variant == Variant.ANT_COLONY_SYSTEM && random.nextDouble() < q0) {
+			int selectedLocation = candidateLists == null
+					? selectBestUnvisitedVertex(currentVertex, ant)
+					: selectBestCandidateVertex(currentVertex, ant);
+			ant.visit(selectedLocation);
+			return selectedLocation;
+		}
+		
+		int candidateCount = candidateLists == null
+				? generateProbabilities(currentVertex, ant)
+				: generateCandidateProbabilities(currentVertex, ant);
+		
+		if (candidateCount == 0) {
+			int selectedLocation = selectBestUnvisitedVertex(currentVertex, ant);
+			ant.visit(selectedLocation);
+			return selectedLocation;
+		}
+		return generateRandomVertex(ant, candidateCount, random.nextDouble());
+	}
+	
+	public int generateRandomVertex(Ant ant, int candidateCount, double randomNumber) {
+		int selectedLocation = sampleVertex(ant, candidateCount, randomNumber);
+		ant.visit(selectedLocation);
+		
+		return selectedLocation;
+	}
+	
+	public int sampleVertex(Ant ant, int candidateCount, double randomNumber) {
+		int[] candidates = ant.getCandidates();
+		double[] cumulativeWeights = ant.getCumulativeWeights();
+		double total = cumulativeWeights[candidateCount - 1];
+		
+		if (!(total > 0) || Double.isInfinite(total)) {
+			return candidates[(int)(randomNumber * candidateCount)];
+		}
+		
+		double target = randomNumber * total;
+		int low = 0;
+		int high = candidateCount - 1;
+		
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (cumulativeWeights[mid] > target) {
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+		
+		return candidates[low];
+	}
+	
+	public int generateProbabilities(int currentVertex, Ant ant) {
+		int[] candidates = ant.getCandidates();
+		double[] cumulativeWeights = ant.getCumulativeWeights();
+		double cumulative = 0;
+		int idx = 0;
+		
+		for (int j = ant.nextUnvisited(0); j != -1; j = ant.nextUnvisited(j + 1)) {
+			if (currentVertex == j) {
+				continue;
+			}
+			
+			cumulative += getWeightage(currentVertex, j);
+			candidates[idx] = j;
+			cumulativeWeights[idx] = cumulative;
+			idx += 1;
+		}
+		
+		return idx;
+	}
+	
+	public int generateCandidateProbabilities(int currentVertex, Ant ant) {
+		int[] candidates = ant.getCandidates();
+		double[] cumulativeWeights = ant.getCumulativeWeights();
+		int[] candidateList = candidateLists[currentVertex];
+		int offset = sparsePheromone == null ? -1 : sparsePheromone.getOffset(currentVertex);
+		double cumulative = 0;
+		int idx = 0;
+		
+		for (int position = 0; position < candidateList.length; position++) {
+			int candidate = candidateList[position];
+			if (ant.isVisited(candidate)) {
+				continue;
+			}
+			
+			cumulative += offset == -1 ? getWeightage(currentVertex, candidate) : sparsePheromone.getChoice(offset + position);
+			candidates[idx] = candidate;
+			cumulativeWeights[idx] = cumulative;
+			idx += 1;
+		}
+		
+		return idx;
+	}
+	
+	public int selectBestCandidateVertex(int currentVertex, Ant ant) {
+		int bestVertex = -1;
+		double bestWeightage = -1;
+		
+		for (int candidate : candidateLists[currentVertex]) {
+			if (ant.isVisited(candidate)) {
+				continue;
+			}
+			
+			double weightage = getWeightage(currentVertex, candidate);
+			if (weightage > bestWeightage) {
+				bestWeightage = weightage;
+				bestVertex = candidate;
+			}
+		}
+		
+		return bestVertex == -1 ? selectBestUnvisitedVertex(currentVertex, ant) : bestVertex;
+	}
+	
+	public int selectBestUnvisitedVertex(int currentVertex, Ant ant) {
+		if (sparsePheromone != null) {
+			// Every unvisited vertex is off the candidate list here, so they all share the default trail.
+			return selectNearestUnvisitedVertex(currentVertex, ant);
+		}
+		
+		int bestVertex = -1;
+		double bestWeightage = -1;
+		
+		for (int j = 0; j < getLocationCount(); j++) {
+			if (ant.isVisited(j) || currentVertex == j) {
+				continue;
+			}
+			
+			double weightage = getWeightage(currentVertex, j);
+			if (weightage > bestWeightage) {
+				bestWeightage = weightage;
+				bestVertex = j;
+			}
+		}
+		
+		return bestVertex;
+	}
+	
+	public int selectNearestUnvisitedVertex(int currentVertex, Ant ant) {
+		int nearestVertex = -1;
+		double nearestDistance = Double.POSITIVE_INFINITY;
+		
+		for (int j = ant.nextUnvisited(0); j != -1; j = ant.nextUnvisited(j + 1)) {
+			if (j == currentVertex) {
+				continue;
+			}
+			double distance = distance(currentVertex, j);
+			if (nearestVertex == -1 || distance < nearestDistance) {
+				nearestVertex = j;
+				nearestDistance = distance;
+			}
+		}
+		
+		return nearestVertex;
+	}
+	
+	public void buildCandidateLists() {
+		candidateLists = graph != null
+				? buildNearestNeighbourLists(graph, candidateListSize)
+				: buildNearestNeighbourLists(distances, getLocationCount(), candidateListSize);
+	}
+	
+	public static int[][] buildNearestNeighbourLists(double[][] graph, int size) {
+		int[][] neighbourLists = new int[graph.length][];
+		for (int i = 0; i < graph.length; i++) {
+			neighbourLists[i] = getNearestNeighbours(graph[i], graph.length, i, size);
+		}
+		return neighbourLists;
+	}
+	
+	// Same lists without a table: one row of distances is computed at a time.
+	public static int[][] buildNearestNeighbourLists(Distances distances, int n, int size) {
+		int[][] neighbourLists = new int[n][];
+		double[] row = new double[n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				row[j] = i == j ? 0 : distances.get(i, j);
+			}
+			neighbourLists[i] = getNearestNeighbours(row, n, i, size);
+		}
+		return neighbourLists;
+	}
+	
+	// Rows of a matrix that has grown can be longer than the number of locations, so n is given separately.
+	public static int[] getNearestNeighbours(double[] distances, int n, int self, int size) {
+		int k = Math.min(size, n - 1);
+		int[] nearest = new int[k];
+		double[] nearestDistances = new double[k];
+		int count = 0;
+		
+		for (int j = 0; j < n; j++) {
+			if (self == j) {
+				continue;
+			}
+			
+			double distance = distances[j];
+			if (count == k && (k == 0 || distance >= nearestDistances[k - 1])) {
+				continue;
+			}
+			
+			int position = count < k ? count++ : k - 1;
+			while (position > 0 && nearestDistances[position - 1] > distance) {
+				nearestDistances[position] = nearestDistances[position - 1];
+				nearest[position] = nearest[position - 1];
+				position--;
+			}
+			nearestDistances[position] = distance;
+			nearest[position] = j;
+		}
+		
+		return nearest;
+	}
+	
+	public void alterRewardMatrix(Ant[] ants) {
+		if (sparsePheromone != null) {
+			sparsePheromone.evaporate(evaporationRate, 0);
+			for (Ant ant: ants) {
+				depositSparse(ant.getTour(), 1.0 / ant.getTourLength(), Double.MAX_VALUE);
+			}
+			choiceInfoStale = true;
+			return;
+		}
+		if (lazyEvaporation && variant == Variant.ANT_SYSTEM) {
+			alterRewardMatrixLazily(ants);
+			return;
+		}
+		
+		for (int i = 0; i < rewardMatrix.length; i++) {
+			for (int j = 0; j < rewardMatrix.length; j++) {
+				if (i == j) {
+					continue;
+				}
+				rewardMatrix[i][j] *= (1 - evaporationRate);
+			}
+		}
+		
+		for (Ant ant: ants) {
+			double score = ant.getTourLength();
+			
+			int[] tour = ant.getTour();
+			int tourLength = ant.getVisitedCount();
+			
+			for (int i = 1; i < tourLength; i++) {
+				rewardMatrix[tour[i]][tour[i - 1]] += 1.0 / score;
+				rewardMatrix[tour[i - 1]][tour[i]] += 1.0 / score;
+			}
+			rewardMatrix[tour[0]][tour[tourLength - 1]] += 1.0 / score;
+			rewardMatrix[tour[tourLength - 1]][tour[0]] += 1.0 / score;
+		}
+	}
+	
+	public void alterRewardMatrixMaxMin(int[] tour, double tourLength) {
+		if (sparsePheromone != null) {
+			sparsePheromone.evaporate(evaporationRate, tauMin);
+			depositSparse(tour, 1.0 / tourLength, tauMax);
+			choiceInfoStale = true;
+			return;
+		}
+		
+		for (int i = 0; i < rewardMatrix.length; i++) {
+			double[] pheromoneRow = rewardMatrix[i];
+			for (int j = 0; j < rewardMatrix.length; j++) {
+				if (i == j) {
+					continue;
+				}
+				pheromoneRow[j] = Math.max(pheromoneRow[j] * (1 - evaporationRate), tauMin);
+			}
+		}
+		
+		double deposit = 1.0 / tourLength;
+		for (int i = 0; i < tour.length; i++) {
+			int from = tour[i];
+			int to = tour[i + 1 == tour.length ? 0 : i + 1];
+			double pheromone = Math.min(rewardMatrix[from][to] + deposit, tauMax);
+			rewardMatrix[from][to] = pheromone;
+			rewardMatrix[to][from] = pheromone;
+		}
+		choiceInfoStale = true;
+	}
+	
+	public void applyLocalPheromoneUpdate(int from, int to) {
+		double pheromone = (1 - localEvaporationRate) * rewardMatrix[from][to] + localEvaporationRate * tau0;
+		rewardMatrix[from][to] = pheromone;
+		rewardMatrix[to][from] = pheromone;
+		
+		if (!choiceInfoStale) {
+			updateChoiceInfo(from, to);
+			updateChoiceInfo(to, from);
+		}
+	}
+	
+	public void alterRewardMatrixGlobalBest(int[] tour, double tourLength) {
+		double deposit = evaporationRate / tourLength;
+		
+		for (int i = 0; i < tour.length; i++) {
+			int from = tour[i];
+			int to = tour[i + 1 == tour.length ? 0 : i + 1];
+			double pheromone = (1 - evaporationRate) * rewardMatrix[from][to] + deposit;
+			rewardMatrix[from][to] = pheromone;
+			rewardMatrix[to][from] = pheromone;
+			
+			if (!choiceInfoStale) {
+				updateChoiceInfo(from, to);
+				updateChoiceInfo(to, from);
+			}
+		}
+	}
+	
+	public void updatePheromoneBounds(double bestLength) {
+		int n = getLocationCount();
+		tauMax = 1.0 / (evaporationRate * bestLength);
+		
+		double pBestRoot = Math.pow(pBest, 1.0 / n);
+		double averageChoices = n / 2.0;
+		tauMin = averageChoices > 1
+				? Math.min(tauMax * (1 - pBestRoot) / ((averageChoices - 1) * pBestRoot), tauMax)
+				: tauMax;
+	}
+	
+	private void depositSparse(int[] tour, double deposit, double maxPheromone) {
+		for (int i = 0; i < tour.length; i++) {
+			sparsePheromone.deposit(tour[i], tour[i + 1 == tour.length ? 0 : i + 1], deposit, maxPheromone);
+		}
+		choiceInfoStale = true;
+	}
+	
+	// Colonies read from a file get their dense trails on first use, so sparse runs never allocate n^2 of them.
+	private void ensureRewardMatrix() {
+		if (rewardMatrix != null || sparsePheromoneEnabled || (graph == null && locationDistances == null)) {
+			return;
+		}
+		int n = getLocationCount();
+		rewardMatrix = new double[n][n];
+		for (double[] row : rewardMatrix) {
+			Arrays.fill(row, 1);
+		}
+		pheromoneScale = 1;
+		choiceInfoStale = true;
+	}
+	
+	private void resetPheromone(double pheromone) {
+		if (sparsePheromone != null) {
+			sparsePheromone.fill(pheromone);
+			choiceInfoStale = true;
+			return;
+		}
+		
+		for (int i = 0; i < rewardMatrix.length; i++) {
+			for (int j = 0; j < rewardMatrix.length; j++) {
+				if (i == j) {
+					continue;
+				}
+				rewardMatrix[i][j] = pheromone;
+			}
+		}
+		pheromoneScale = 1;
+		choiceInfoStale = true;
+	}
+	
+	public double getNearestNeighbourTourLength(int start) {
+		return getTourLength(getNearestNeighbourTour(start));
+	}
+	
+	public int[] getNearestNeighbourTour(int start) {
+		int n = getLocationCount();
+		int[] tour = new int[n];
+		boolean[] visited = new boolean[n];
+		visited[start] = true;
+		tour[0] = start;
+		int current = start;
+		
+		for (int step = 1; step < n; step++) {
+			int nearest = -1;
+			double nearestDistance = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < n; j++) {
+				if (visited[j]) {
+					continue;
+				}
+				double distance = distance(current, j);
+				if (nearest == -1 || distance < nearestDistance) {
+					nearest = j;
+					nearestDistance = distance;
+				}
+			}
+			visited[nearest] = true;
+			tour[step] = nearest;
+			current = nearest;
+		}
+		
+		return tour;
+	}
+	
+	public double getTourLength(int[] tour) {
+		double length = 0;
+		for (int i = 0; i < tour.length; i++) {
+			length += distance(tour[i], tour[i + 1 == tour.length ? 0 : i + 1]);
+		}
+		return length;
+	}
+	
+	public int[] getTourByCrimeIds(List<String> crimeIds) {
+		Map<String, Integer> locationKeys = new HashMap<>();
+		for (int i = 0; i < coords.size(); i++) {
+			locationKeys.put(coords.get(i).getCrimeId(), i);
+		}
+		
+		int[] tour = new int[crimeIds.size()];
+		for (int i = 0; i < tour.length; i++) {
+			Integer locationKey = locationKeys.get(crimeIds.get(i));
+			if (locationKey == null) {
+				throw new IllegalArgumentException("Unknown crime id " + crimeIds.get(i));
+			}
+			tour[i] = locationKey;
+		}
+		return tour;
+	}
+	
+	public void saveTour(String fileName, int[] tour) {
+		try (FileWriter writer = new FileWriter(fileName)) {
+			writer.append("crimeId\n");
+			for (int locationKey : tour) {
+				writer.append(coords.get(locationKey).getCrimeId());
+				writer.append("\n");
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	public int[] loadTour(String fileName) {
+		List<String> crimeIds = new ArrayList<>();
+		String line;
+		
+		try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+			br.readLine();
+			
+			while ((line = br.readLine()) != null) {
+				if (!line.isEmpty()) {
+					crimeIds.add(line.trim());
+				}
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		
+		return getTourByCrimeIds(crimeIds);
+	}
+	
+	private void alterRewardMatrixLazily(Ant[] ants) {
+		pheromoneScale *= (1 - evaporationRate);
+		boolean updateChoices = !choiceInfoStale;
+		
+		for (Ant ant: ants) {
+			double deposit = 1.0 / ant.getTourLength() / pheromoneScale;
+			
+			int[] tour = ant.getTour();
+			int tourLength = ant.getVisitedCount();
+			
+			for (int i = 0; i < tourLength; i++) {
+				int from = tour[i];
+				int to = tour[i + 1 == tourLength ? 0 : i + 1];
+				rewardMatrix[from][to] += deposit;
+				rewardMatrix[to][from] += deposit;
+				
+				if (updateChoices) {
+					updateChoiceInfo(from, to);
+					updateChoiceInfo(to, from);
+				}
+			}
+		}
+		
+		if (pheromoneScale < getMinPheromoneScale()) {
+			applyPheromoneScale();
+		}
+	}
+	
+	private double getMinPheromoneScale() {
+		return Math.pow(10, -MAX_SCALED_TRAIL_DECADES / Math.max(alpha, 1));
+	}
+	
+	private void updateChoiceInfo(int x, int y) {
+		double pheromone = rewardMatrix[x][y];
+		choiceInfo[x][y] = (alpha == 1 ? pheromone : Math.pow(pheromone, alpha)) * heuristicMatrix[x][y];
+	}
+	
+	private void applyPheromoneScale() {
+		for (int i = 0; i < rewardMatrix.length; i++) {
+			for (int j = 0; j < rewardMatrix.length; j++) {
+				if (i == j) {
+					continue;
+				}
+				rewardMatrix[i][j] *= pheromoneScale;
+			}
+		}
+		pheromoneScale = 1;
+		choiceInfoStale = true;
+	}
+	
+	public int addLocation(Location location) {
+		ensureGraph();
+		double[] distances = new double[graph.length];
+		for (int i = 0; i < distances.length; i++) {
+			Location other = coords.get(i);
+			distances[i] = projection != null
+					? projection.distance(location.getLat(), location.getLon(), other.getLat(), other.getLon())
+					: getHaversineDistance(location.getLat(), other.getLat(), location.getLon(), other.getLon());
+		}
+		coords.add(location);
+		return addLocation(distances);
+	}
+	
+	// Islands of a MultiColony share one distance matrix, which the first island grows and the others adopt.
+	int addLocation(Location location, double[][] sharedGraph) {
+		int added = getLocationCount();
+		if (coords != null) {
+			coords.add(location);
+		}
+		return addLocation(Arrays.copyOf(sharedGraph[added], added), sharedGraph);
+	}
+	
+	public int addLocation(double[] distances) {
+		return addLocation(distances, null);
+	}
+	
+	private int addLocation(double[] distances, double[][] sharedGraph) {
+		if (sharedGraph == null) {
+			ensureGraph();
+		}
+		int added = getLocationCount();
+		int nearest = 0;
+		for (int j = 1; j < added; j++) {
+			if (distances[j] < distances[nearest]) {
+				nearest = j;
+			}
+		}
+		removePopulationTrails();
+		localSearchLists = null;
+		
+		if (sharedGraph != null) {
+			graph = sharedGraph;
+			locationDistances = null;
+		}
+		else {
+			graph = growMatrix(graph);
+			for (int j = 0; j < added; j++) {
+				graph[added][j] = distances[j];
+				graph[j][added] = distances[j];
+			}
+		}
+		
+		// The new location starts with the trails its nearest neighbour has learned.
+		if (rewardMatrix != null) {
+			rewardMatrix = growMatrix(rewardMatrix);
+			double strongest = 0;
+			for (int j = 0; j < added; j++) {
+				if (j != nearest) {
+					strongest = Math.max(strongest, rewardMatrix[nearest][j]);
+				}
+			}
+			for (int j = 0; j < added; j++) {
+				double pheromone = j == nearest ? strongest : rewardMatrix[nearest][j];
+				rewardMatrix[added][j] = pheromone;
+				rewardMatrix[j][added] = pheromone;
+			}
+		}
+		if (heuristicMatrix != null) {
+			heuristicMatrix = growMatrix(heuristicMatrix);
+			for (int j = 0; j < added; j++) {
+				double heuristic = Math.pow(1.0 / distances[j], beta);
+				heuristicMatrix[added][j] = heuristic;
+				heuristicMatrix[j][added] = heuristic;
+			}
+		}
+		if (choiceInfo != null) {
+			choiceInfo = growMatrix(choiceInfo);
+			if (heuristicMatrix != null) {
+				for (int j = 0; j < added; j++) {
+					updateChoiceInfo(added, j);
+					updateChoiceInfo(j, added);
+				}
+			}
+			else {
+				choiceInfoStale = true;
+			}
+		}
+		
+		if (candidateLists != null) {
+			int k = Math.min(candidateListSize, added);
+			int[][] lists = Arrays.copyOf(candidateLists, added + 1);
+			lists[added] = getNearestNeighbours(graph[added], added + 1, added, candidateListSize);
+			for (int i = 0; i < added; i++) {
+				lists[i] = insertCandidate(lists[i], graph[i], added, k);
+			}
+			candidateLists = lists;
+		}
+		if (sparsePheromone != null) {
+			int[] previousIndex = new int[added + 1];
+			for (int i = 0; i < added; i++) {
+				previousIndex[i] = i;
+			}
+			previousIndex[added] = nearest;
+			rebuildSparsePheromone(previousIndex);
+		}
+		
+		if (foundGlobalBest) {
+			int position = getCheapestInsertionPosition(bestTour, added);
+			bestTourLength += getInsertionCost(bestTour, position, added);
+			bestTour = insertAt(bestTour, position, added);
+		}
+		for (int i = 0; i < populationCount; i++) {
+			int slot = (populationHead + i) % populationSize;
+			int position = getCheapestInsertionPosition(populationTours[slot], added);
+			populationLengths[slot] += getInsertionCost(populationTours[slot], position, added);
+			populationTours[slot] = insertAt(populationTours[slot], position, added);
+		}
+		
+		return finishLocationUpdate(added);
+	}
+	
+	public void removeLocation(int location) {
+		removeLocation(location, null);
+	}
+	
+	// See addLocation(Location, double[][]): the first island shrinks the shared matrix and the others adopt it.
+	void removeLocation(int location, double[][] sharedGraph) {
+		int last = getLocationCount() - 1;
+		removePopulationTrails();
+		localSearchLists = null;
+		
+		// The last location moves into the freed index so every other index stays put. The distances are
+		// moved in place, so tour lengths are taken again afterwards rather than reduced by the removal gain.
+		if (sharedGraph == null) {
+			ensureGraph();
+		}
+		graph = sharedGraph != null ? sharedGraph : swapRemove(graph, location);
+		locationDistances = null;
+		if (foundGlobalBest) {
+			bestTour = removeFromTour(bestTour, location, last);
+			bestTourLength = getTourLength(bestTour);
+		}
+		for (int i = 0; i < populationCount; i++) {
+			int slot = (populationHead + i) % populationSize;
+			populationTours[slot] = removeFromTour(populationTours[slot], location, last);
+			populationLengths[slot] = getTourLength(populationTours[slot]);
+		}
+		if (rewardMatrix != null) {
+			rewardMatrix = swapRemove(rewardMatrix, location);
+		}
+		if (heuristicMatrix != null) {
+			heuristicMatrix = swapRemove(heuristicMatrix, location);
+		}
+		if (choiceInfo != null) {
+			choiceInfo = swapRemove(choiceInfo, location);
+		}
+		if (coords != null && coords.size() > last) {
+			coords.set(location, coords.get(last));
+			coords.remove(last);
+		}
+		
+		if (candidateLists != null) {
+			int[][] lists = Arrays.copyOf(candidateLists, last);
+			if (location != last) {
+				lists[location] = candidateLists[last];
+			}
+			for (int i = 0; i < last; i++) {
+				boolean stale = false;
+				for (int position = 0; position < lists[i].length; position++) {
+					if (lists[i][position] == location) {
+						stale = true;
+					}
+					else if (lists[i][position] == last) {
+						lists[i][position] = location;
+					}
+				}
+				if (stale) {
+					lists[i] = getNearestNeighbours(graph[i], last, i, candidateListSize);
+				}
+			}
+			candidateLists = lists;
+		}
+		if (sparsePheromone != null) {
+			int[] previousIndex = new int[last];
+			for (int i = 0; i < last; i++) {
+				previousIndex[i] = i;
+			}
+			if (location != last) {
+				previousIndex[location] = last;
+			}
+			rebuildSparsePheromone(previousIndex);
+		}
+		
+		finishLocationUpdate(location);
+	}
+	
+	private int finishLocationUpdate(int location) {
+		for (int i = 0; i < populationCount; i++) {
+			updatePopulationEdges(populationTours[(populationHead + i) % populationSize], populationDeposit);
+		}
+		if (variant == Variant.MAX_MIN_ANT_SYSTEM && foundGlobalBest) {
+			updatePheromoneBounds(bestTourLength);
+			clampTrails(location);
+		}
+		warmStartTours.clear();
+		return location;
+	}
+	
+	// The copied or moved trails of a location can fall outside bounds that were just recomputed for the new size.
+	private void clampTrails(int location) {
+		if (sparsePheromone != null) {
+			sparsePheromone.clamp(tauMin, tauMax);
+		}
+		else if (rewardMatrix != null) {
+			for (int j = 0; j < rewardMatrix.length; j++) {
+				if (j == location) {
+					continue;
+				}
+				double pheromone = Math.min(Math.max(rewardMatrix[location][j], tauMin), tauMax);
+				rewardMatrix[location][j] = pheromone;
+				rewardMatrix[j][location] = pheromone;
+				if (!choiceInfoStale && choiceInfo != null) {
+					updateChoiceInfo(location, j);
+					updateChoiceInfo(j, location);
+				}
+			}
+		}
+	}
+	
+	private void removePopulationTrails() {
+		for (int i = 0; i < populationCount; i++) {
+			updatePopulationEdges(populationTours[(populationHead + i) % populationSize], -populationDeposit);
+		}
+	}
+	
+	private void rebuildSparsePheromone(int[] previousIndex) {
+		SparsePheromone previous = sparsePheromone;
+		sparsePheromone = new SparsePheromone(candidateLists, previous.getDefaultValue());
+		sparsePheromone.copyFrom(previous, previousIndex);
+		sparsePheromone.updateHeuristics(distances, beta);
+		choiceInfoStale = true;
+	}
+	
+	private static int[] insertCandidate(int[] candidates, double[] distances, int location, int size) {
+		int count = candidates.length;
+		if (count == size && (size == 0 || distances[location] >= distances[candidates[count - 1]])) {
+			return candidates;
+		}
+		
+		int[] updated = count < size ? Arrays.copyOf(candidates, count + 1) : candidates.clone();
+		int position = count < size ? count : count - 1;
+		while (position > 0 && distances[updated[position - 1]] > distances[location]) {
+			updated[position] = updated[position - 1];
+			position--;
+		}
+		updated[position] = location;
+		return updated;
+	}
+	
+	private int getCheapestInsertionPosition(int[] tour, int location) {
+		int bestPosition = 0;
+		double bestCost = Double.POSITIVE_INFINITY;
+		
+		for (int i = 0; i < tour.length; i++) {
+			double cost = getInsertionCost(tour, i, location);
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestPosition = i;
+			}
+		}
+		
+		return bestPosition;
+	}
+	
+	private double getInsertionCost(int[] tour, int position, int location) {
+		int from = tour[position];
+		int to = tour[position + 1 == tour.length ? 0 : position + 1];
+		return graph[from][location] + graph[location][to] - graph[from][to];
+	}
+	
+	private int[] insertAt(int[] tour, int position, int location) {
+		int[] updated = new int[tour.length + 1];
+		System.arraycopy(tour, 0, updated, 0, position + 1);
+		updated[position + 1] = location;
+		System.arraycopy(tour, position + 1, updated, position + 2, tour.length - position - 1);
+		return updated;
+	}
+	
+	private static int[] removeFromTour(int[] tour, int location, int last) {
+		int[] updated = new int[tour.length - 1];
+		int idx = 0;
+		for (int city : tour) {
+			if (city != location) {
+				updated[idx++] = city == last ? location : city;
+			}
+		}
+		return updated;
+	}
+	
+	// Rows get spare capacity the way an ArrayList does, so most inserts write one new column in place and only
+	// copy the row references. Rows may therefore be longer than the matrix; only the first length entries count.
+	private static double[][] growMatrix(double[][] matrix) {
+		int n = matrix.length;
+		int capacity = n + 1 + (n >> 1);
+		double[][] grown = Arrays.copyOf(matrix, n + 1);
+		for (int i = 0; i < n; i++) {
+			if (grown[i].length <= n) {
+				grown[i] = Arrays.copyOf(grown[i], capacity);
+			}
+		}
+		grown[n] = new double[capacity];
+		return grown;
+	}
+	
+	// Rows no longer than the matrix may still be the ones handed to setGraph or setRewardMatrix, so they are
+	// copied before the first write; rows growMatrix allocated are longer and are moved in place.
+	private static double[][] swapRemove(double[][] matrix, int location) {
+		int last = matrix.length - 1;
+		double[][] shrunk = Arrays.copyOf(matrix, last);
+		if (location != last) {
+			for (int i = 0; i < last; i++) {
+				if (shrunk[i].length <= matrix.length) {
+					shrunk[i] = Arrays.copyOf(shrunk[i], matrix.length);
+				}
+				shrunk[i][location] = matrix[i][last];
+			}
+			shrunk[location] = matrix[last].length <= matrix.length ? matrix[last].clone() : matrix[last];
+			shrunk[location][location] = matrix[last][last];
+		}
+		return shrunk;
+	}
 }
@@ -70,13 +70,9 @@ public class BenchmarkTSP {
             csvWriter.append("alpha,beta,evapRate,minCost_in_km_gens_total,elapsedTime_in_ms\n");
                 csvWriter.append(String.join(",", row));
                 csvWriter.append("\n\n");
-            csvWriter.append("gen,minCost_in_km_per_gen\n");
+            csvWriter.append("gen,minCost_in_km_per_gen,avgCost_in_km_per_gen,localSearchTime_in_ms_per_gen,localSearchGain_in_km_per_gen\n");
             for (String generationStat : generationWiseStats) {
-                String generation = generationStat.split(",")[0];
-                String generationMinCost = generationStat.split(",")[1];
-                csvWriter.append(generation);
-                csvWriter.append(",");
-                csvWriter.append(generationMinCost);
+                csvWriter.append(generationStat);
                 csvWriter.append("\n");
             }
             csvWriter.flush();
@@ -0,0 +1,243 @@
+package edu.northeastern.psa;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CrimeLocationReader {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private double[] latitudes = new double[1024];
+	private double[] longitudes = new double[1024];
+	private String[] crimeIds = new String[1024];
+	private int size;
+	private int rows;
+
+	// Open-addressing set of location indices, keyed on the raw bits of (lat, lon).
+	private int[] slots = newSlots(2048);
+
+	private byte[] buffer = new byte[BUFFER_SIZE];
+
+	public static CrimeLocationReader read(String fileName) throws IOException {
+		CrimeLocationReader reader = new CrimeLocationReader();
+		try (InputStream in = new FileInputStream(fileName)) {
+			reader.read(in);
+		}
+		return reader;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getRowCount() {
+		return rows;
+	}
+
+	public double[] getLatitudes() {
+		return Arrays.copyOf(latitudes, size);
+	}
+
+	public double[] getLongitudes() {
+		return Arrays.copyOf(longitudes, size);
+	}
+
+	public String[] getCrimeIds() {
+		return Arrays.copyOf(crimeIds, size);
+	}
+
+	public double getLatitude(int i) {
+		return latitudes[i];
+	}
+
+	public double getLongitude(int i) {
+		return longitudes[i];
+	}
+
+	public String getCrimeId(int i) {
+		return crimeIds[i];
+	}
+
+	private void read(InputStream in) throws IOException {
+		int start = 0;
+		int end = 0;
+		boolean header = true;
+
+		while (true) {
+			int newline = indexOf(buffer, (byte) '\n', start, end);
+			if (newline == -1) {
+				// Keep the partial line, then refill (and grow for very long lines).
+				int remaining = end - start;
+				if (start > 0) {
+					System.arraycopy(buffer, start, buffer, 0, remaining);
+				}
+				else if (remaining == buffer.length) {
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+				start = 0;
+				end = remaining;
+
+				int read = in.read(buffer, end, buffer.length - end);
+				if (read == -1) {
+					if (end > 0 && !header) {
+						parseLine(0, end);
+					}
+					return;
+				}
+				end += read;
+				continue;
+			}
+
+			if (header) {
+				header = false;
+			}
+			else {
+				parseLine(start, newline);
+			}
+			start = newline + 1;
+		}
+	}
+
+	private void parseLine(int from, int to) {
+		if (to > from && buffer[to - 1] == '\r') {
+			to--;
+		}
+		if (to == from) {
+			return;
+		}
+
+		int firstComma = indexOf(buffer, (byte) ',', from, to);
+		int secondComma = firstComma == -1 ? -1 : indexOf(buffer, (byte) ',', firstComma + 1, to);
+		if (secondComma == -1) {
+			throw new NumberFormatException("Expected crimeID,longitude,latitude but got: "
+					+ new String(buffer, from, to - from, StandardCharsets.UTF_8));
+		}
+		int thirdComma = indexOf(buffer, (byte) ',', secondComma + 1, to);
+		int latitudeEnd = thirdComma == -1 ? to : thirdComma;
+
+		rows++;
+		double lon = parseDouble(firstComma + 1, secondComma);
+		double lat = parseDouble(secondComma + 1, latitudeEnd);
+		addIfAbsent(lat, lon, from, firstComma);
+	}
+
+	private void addIfAbsent(double lat, double lon, int idFrom, int idTo) {
+		long latBits = Double.doubleToLongBits(lat);
+		long lonBits = Double.doubleToLongBits(lon);
+		int mask = slots.length - 1;
+		int slot = hash(latBits, lonBits) & mask;
+
+		while (slots[slot] != -1) {
+			int existing = slots[slot];
+			if (Double.doubleToLongBits(latitudes[existing]) == latBits
+					&& Double.doubleToLongBits(longitudes[existing]) == lonBits) {
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (size == latitudes.length) {
+			latitudes = Arrays.copyOf(latitudes, size * 2);
+			longitudes = Arrays.copyOf(longitudes, size * 2);
+			crimeIds = Arrays.copyOf(crimeIds, size * 2);
+		}
+		latitudes[size] = lat;
+		longitudes[size] = lon;
+		crimeIds[size] = new String(buffer, idFrom, idTo - idFrom, StandardCharsets.UTF_8);
+		slots[slot] = size;
+		size++;
+
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+	}
+
+	private void rehash() {
+		slots = newSlots(slots.length * 2);
+		int mask = slots.length - 1;
+		for (int i = 0; i < size; i++) {
+			int slot = hash(Double.doubleToLongBits(latitudes[i]), Double.doubleToLongBits(longitudes[i])) & mask;
+			while (slots[slot] != -1) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i;
+		}
+	}
+
+	private static int[] newSlots(int capacity) {
+		int[] slots = new int[capacity];
+		Arrays.fill(slots, -1);
+		return slots;
+	}
+
+	private static int hash(long latBits, long lonBits) {
+		long h = latBits * 0x9E3779B97F4A7C15L + lonBits;
+		h ^= h >>> 32;
+		h *= 0xC2B2AE3D27D4EB4FL;
+		return (int) (h ^ (h >>> 29));
+	}
+
+	private double parseDouble(int from, int to) {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		boolean anyDigit = false;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		boolean simple = i < to;
+
+		for (; i < to; i++) {
+			byte b = buffer[i];
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				anyDigit = true;
+				if (mantissa != 0) {
+					digits++;
+				}
+				if (fraction) {
+					fractionDigits++;
+				}
+			}
+			else if (b == '.' && !fraction) {
+				fraction = true;
+			}
+			else {
+				simple = false;
+				break;
+			}
+		}
+
+		// Up to 15 significant digits both the mantissa and 10^k are exact, so one division rounds correctly.
+		// A field without any digit ("." or "-") is not a number; let Double.parseDouble reject it.
+		if (!simple || !anyDigit || digits > 15 || fractionDigits > 18) {
+			return Double.parseDouble(new String(buffer, from, to - from, StandardCharsets.US_ASCII).trim());
+		}
+		double value = fractionDigits == 0 ? mantissa : mantissa / (double) POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	private static int indexOf(byte[] bytes, byte target, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
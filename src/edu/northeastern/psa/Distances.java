@@ -0,0 +1,11 @@
+package edu.northeastern.psa;
+
+// Distance between two locations by index, read from a table or computed from the coordinates on demand.
+@FunctionalInterface
+public interface Distances {
+	double get(int i, int j);
+	
+	static Distances of(double[][] graph) {
+		return (i, j) -> graph[i][j];
+	}
+}
@@ -0,0 +1,17 @@
+package edu.northeastern.psa;
+
+public interface LocalSearch {
+	// Improves the closed tour in place and returns its new length.
+	// Neighbour lists must be sorted nearest first; when null the search builds its own.
+	double improve(int[] tour, double tourLength, Distances distances, int[][] neighbourLists);
+
+	int getNeighbourListSize();
+
+	default double improve(int[] tour, double tourLength, Distances distances) {
+		return improve(tour, tourLength, distances, null);
+	}
+
+	default double improve(int[] tour, double tourLength, double[][] graph) {
+		return improve(tour, tourLength, Distances.of(graph));
+	}
+}
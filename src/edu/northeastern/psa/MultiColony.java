@@ -0,0 +1,275 @@
+package edu.northeastern.psa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MultiColony {
+	public enum Topology {
+		RING,
+		ALL_TO_ALL
+	}
+
+	private final List<AntColony> colonies;
+	private final List<List<String>> colonyStats;
+	private Topology topology = Topology.RING;
+	private int migrationInterval = 25;
+	private ExecutorService executor;
+	private int[] bestTour;
+	private double bestTourLength;
+	private int migrations;
+
+	public MultiColony(List<AntColony> colonies) {
+		this.colonies = colonies;
+		this.colonyStats = new ArrayList<>();
+		for (int i = 0; i < colonies.size(); i++) {
+			colonyStats.add(new ArrayList<>());
+		}
+	}
+
+	public MultiColony(String fileName, int colonyCount) {
+		this(createColonies(fileName, colonyCount));
+	}
+
+	private static List<AntColony> createColonies(String fileName, int colonyCount) {
+		List<AntColony> colonies = new ArrayList<>(colonyCount);
+		AntColony first = new AntColony(fileName);
+		colonies.add(first);
+
+		// Every other colony shares the first one's distances; its own trails are allocated on first use.
+		// Locations must be added and removed through the MultiColony, which keeps the shared matrix in step.
+		for (int i = 1; i < colonyCount; i++) {
+			AntColony colony = new AntColony();
+			colony.shareDistances(first);
+			colony.setCoords(new ArrayList<>(first.getCoords()));
+			colony.setProjection(first.getProjection());
+			colonies.add(colony);
+		}
+		return colonies;
+	}
+
+	public List<AntColony> getColonies() {
+		return colonies;
+	}
+
+	public List<String> getColonyStats(int colony) {
+		return colonyStats.get(colony);
+	}
+
+	public Topology getTopology() {
+		return topology;
+	}
+
+	public void setTopology(Topology topology) {
+		this.topology = topology;
+	}
+
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	public void setMigrationInterval(int migrationInterval) {
+		this.migrationInterval = migrationInterval;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public int[] getBestTour() {
+		return bestTour;
+	}
+
+	public double getBestTourLength() {
+		return bestTourLength;
+	}
+
+	public int getMigrations() {
+		return migrations;
+	}
+
+	// Colonies sharing the first one's distance matrix adopt the resized matrix; the others resize their own.
+	public int addLocation(Location location) {
+		AntColony first = colonies.get(0);
+		boolean[] shared = getSharingColonies();
+		int added = first.addLocation(location);
+		for (int i = 1; i < colonies.size(); i++) {
+			AntColony colony = colonies.get(i);
+			if (shared[i]) {
+				colony.addLocation(location, first.getSharedGraph());
+			}
+			else {
+				colony.addLocation(location);
+			}
+		}
+		if (bestTour != null) {
+			updateBestTour();
+		}
+		return added;
+	}
+
+	public void removeLocation(int location) {
+		AntColony first = colonies.get(0);
+		boolean[] shared = getSharingColonies();
+		first.removeLocation(location);
+		for (int i = 1; i < colonies.size(); i++) {
+			AntColony colony = colonies.get(i);
+			if (shared[i]) {
+				colony.removeLocation(location, first.getSharedGraph());
+			}
+			else {
+				colony.removeLocation(location);
+			}
+		}
+		if (bestTour != null) {
+			updateBestTour();
+		}
+	}
+
+	private boolean[] getSharingColonies() {
+		boolean[] shared = new boolean[colonies.size()];
+		for (int i = 1; i < colonies.size(); i++) {
+			shared[i] = colonies.get(i).sharesDistancesWith(colonies.get(0));
+		}
+		return shared;
+	}
+
+	// A dense island needs the distance table; it is built once on the first island so the others keep sharing it.
+	private void shareTableWithDenseColonies() {
+		AntColony first = colonies.get(0);
+		if (first.getSharedGraph() != null) {
+			return;
+		}
+		boolean[] shared = getSharingColonies();
+		boolean dense = !first.isSparsePheromone();
+		for (int i = 1; i < colonies.size(); i++) {
+			dense |= shared[i] && !colonies.get(i).isSparsePheromone();
+		}
+		if (dense) {
+			first.ensureGraph();
+			for (int i = 1; i < colonies.size(); i++) {
+				if (shared[i]) {
+					colonies.get(i).shareDistances(first);
+				}
+			}
+		}
+	}
+
+	public double travellingSalesman(int antCount, int genCount, List<String> generationWiseStats) {
+		ExecutorService pool = executor != null ? executor : Executors.newFixedThreadPool(colonies.size());
+		migrations = 0;
+		shareTableWithDenseColonies();
+
+		try {
+			List<Callable<Integer>> tasks = new ArrayList<>(colonies.size());
+			for (int i = 0; i < colonies.size(); i++) {
+				AntColony colony = colonies.get(i);
+				colony.startRun(antCount);
+				colonyStats.get(i).clear();
+			}
+
+			int generations = 0;
+			while (generations < genCount && !isFinished()) {
+				int epoch = Math.min(migrationInterval > 0 ? migrationInterval : genCount, genCount - generations);
+
+				tasks.clear();
+				for (int i = 0; i < colonies.size(); i++) {
+					AntColony colony = colonies.get(i);
+					List<String> stats = colonyStats.get(i);
+					tasks.add(() -> colony.runGenerations(antCount, epoch, stats));
+				}
+				for (Future<Integer> epochRun : pool.invokeAll(tasks)) {
+					epochRun.get();
+				}
+
+				generations += epoch;
+				updateBestTour();
+				generationWiseStats.add(generations + "," + bestTourLength);
+
+				if (generations < genCount) {
+					migrate();
+				}
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running colonies", e);
+		}
+		catch (ExecutionException e) {
+			throw new IllegalStateException("Colony run failed", e.getCause());
+		}
+		finally {
+			if (executor == null) {
+				pool.shutdown();
+			}
+		}
+
+		System.out.println("Min cost global: " + bestTourLength * 1000 + " meters");
+		return bestTourLength;
+	}
+
+	private boolean isFinished() {
+		boolean allStopped = true;
+		for (AntColony colony : colonies) {
+			AntColony.StopReason stopReason = colony.getStopReason();
+			if (stopReason == AntColony.StopReason.TARGET_REACHED) {
+				return true;
+			}
+			allStopped &= stopReason != null;
+		}
+		return allStopped;
+	}
+
+	private void updateBestTour() {
+		AntColony best = colonies.get(0);
+		for (AntColony colony : colonies) {
+			if (colony.getBestTourLength() < best.getBestTourLength()) {
+				best = colony;
+			}
+		}
+		bestTour = best.getBestTour().clone();
+		bestTourLength = best.getBestTourLength();
+	}
+
+	public void migrate() {
+		int colonyCount = colonies.size();
+
+		// Snapshot first so a tour accepted in this round is not passed on again in the same round.
+		int[][] tours = new int[colonyCount][];
+		double[] lengths = new double[colonyCount];
+		for (int i = 0; i < colonyCount; i++) {
+			tours[i] = colonies.get(i).getBestTour().clone();
+			lengths[i] = colonies.get(i).getBestTourLength();
+		}
+
+		if (topology == Topology.RING) {
+			for (int i = 0; i < colonyCount; i++) {
+				int source = (i - 1 + colonyCount) % colonyCount;
+				if (colonies.get(i).acceptMigrant(tours[source], lengths[source])) {
+					migrations += 1;
+				}
+			}
+			return;
+		}
+
+		int best = 0;
+		for (int i = 1; i < colonyCount; i++) {
+			if (lengths[i] < lengths[best]) {
+				best = i;
+			}
+		}
+		for (int i = 0; i < colonyCount; i++) {
+			if (i != best && colonies.get(i).acceptMigrant(tours[best], lengths[best])) {
+				migrations += 1;
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package edu.northeastern.psa;
+
+public class OrOptLocalSearch implements LocalSearch {
+	private static final double EPSILON = 1e-9;
+	private static final int MAX_SEGMENT_LENGTH = 3;
+
+	private final int neighbourListSize;
+	private Distances distances;
+	private int[][] neighbourLists;
+	private Distances builtFor;
+	private int[][] builtLists;
+	private int[] positions;
+	private int[] queue;
+	private boolean[] queued;
+	private final int[] touched = new int[6];
+
+	public OrOptLocalSearch() {
+		this(10);
+	}
+
+	public OrOptLocalSearch(int neighbourListSize) {
+		this.neighbourListSize = neighbourListSize;
+	}
+
+	@Override
+	public int getNeighbourListSize() {
+		return neighbourListSize;
+	}
+
+	@Override
+	public double improve(int[] tour, double tourLength, Distances distances, int[][] neighbourLists) {
+		int n = tour.length;
+		if (n < MAX_SEGMENT_LENGTH + 3) {
+			return tourLength;
+		}
+		prepare(distances, n, neighbourLists);
+
+		for (int i = 0; i < n; i++) {
+			positions[tour[i]] = i;
+			queue[i] = tour[i];
+			queued[tour[i]] = true;
+		}
+
+		// Cities whose don't-look bit is off sit in a circular queue, as in the 2-opt search.
+		int head = 0;
+		int size = n;
+		double gain = 0;
+
+		while (size > 0) {
+			int a = queue[head];
+			head = head + 1 == n ? 0 : head + 1;
+			size--;
+			queued[a] = false;
+
+			// Reversals flip parts of the tour, so segments are tried both starting and ending at a.
+			double moveGain = moveSegment(tour, positions[a], 1);
+			for (int segmentLength = 2; segmentLength <= MAX_SEGMENT_LENGTH && moveGain == 0; segmentLength++) {
+				moveGain = moveSegment(tour, positions[a], segmentLength);
+				if (moveGain == 0) {
+					moveGain = moveSegment(tour, (positions[a] - segmentLength + 1 + n) % n, segmentLength);
+				}
+			}
+			if (moveGain > 0) {
+				gain += moveGain;
+				for (int city : touched) {
+					if (!queued[city]) {
+						queued[city] = true;
+						queue[(head + size) % n] = city;
+						size++;
+					}
+				}
+			}
+		}
+
+		return tourLength - gain;
+	}
+
+	private double moveSegment(int[] tour, int start, int segmentLength) {
+		int n = tour.length;
+		int first = tour[start];
+		int last = tour[(start + segmentLength - 1) % n];
+		int previous = tour[(start - 1 + n) % n];
+		int next = tour[(start + segmentLength) % n];
+		double removeGain = distances.get(previous, first) + distances.get(last, next) - distances.get(previous, next);
+		if (removeGain <= EPSILON) {
+			return 0;
+		}
+
+		int bestFrom = -1;
+		boolean bestReversed = false;
+		double bestGain = EPSILON;
+
+		for (int end = 0; end < 2; end++) {
+			int endpoint = end == 0 ? first : last;
+			for (int c : neighbourLists[endpoint]) {
+				if (distances.get(endpoint, c) >= removeGain) {
+					break;
+				}
+				if (inSegment(c, start, segmentLength)) {
+					continue;
+				}
+
+				// Try both edges at c: (c, succ c) and (pred c, c).
+				for (int side = 0; side < 2; side++) {
+					int from = side == 0 ? c : tour[(positions[c] - 1 + n) % n];
+					int to = side == 0 ? tour[(positions[c] + 1) % n] : c;
+					if (inSegment(from, start, segmentLength) || inSegment(to, start, segmentLength)) {
+						continue;
+					}
+
+					double forwardGain = removeGain - (distances.get(from, first) + distances.get(last, to) - distances.get(from, to));
+					if (forwardGain > bestGain) {
+						bestGain = forwardGain;
+						bestFrom = from;
+						bestReversed = false;
+					}
+					double reversedGain = removeGain - (distances.get(from, last) + distances.get(first, to) - distances.get(from, to));
+					if (reversedGain > bestGain) {
+						bestGain = reversedGain;
+						bestFrom = from;
+						bestReversed = true;
+					}
+				}
+			}
+		}
+
+		if (bestFrom == -1) {
+			return 0;
+		}
+
+		// Three 2-opt exchanges move the segment in place; the last one only restores its direction.
+		int to = tour[(positions[bestFrom] + 1) % n];
+		exchange(tour, previous, first, bestFrom, to);
+		exchange(tour, previous, bestFrom, next, last);
+		if (!bestReversed) {
+			exchange(tour, bestFrom, last, first, to);
+		}
+
+		touched[0] = previous;
+		touched[1] = first;
+		touched[2] = last;
+		touched[3] = next;
+		touched[4] = bestFrom;
+		touched[5] = to;
+		return bestGain;
+	}
+
+	// Replaces the tour edges (a, b) and (c, d) with (a, c) and (b, d), where c follows b going away from a.
+	private void exchange(int[] tour, int a, int b, int c, int d) {
+		int n = tour.length;
+		if (tour[(positions[a] + 1) % n] == b) {
+			reverse(tour, positions[b], positions[c]);
+		}
+		else {
+			reverse(tour, positions[c], positions[b]);
+		}
+	}
+
+	private void reverse(int[] tour, int from, int to) {
+		int n = tour.length;
+		int length = (to - from + n) % n + 1;
+
+		// Reversing the complement gives the same cycle, so flip whichever side is shorter.
+		if (length * 2 > n) {
+			int newFrom = (to + 1) % n;
+			to = (from - 1 + n) % n;
+			from = newFrom;
+			length = n - length;
+		}
+
+		for (int swaps = length / 2; swaps > 0; swaps--) {
+			int first = tour[from];
+			int second = tour[to];
+			tour[from] = second;
+			positions[second] = from;
+			tour[to] = first;
+			positions[first] = to;
+			from = from + 1 == n ? 0 : from + 1;
+			to = to == 0 ? n - 1 : to - 1;
+		}
+	}
+
+	private boolean inSegment(int city, int start, int segmentLength) {
+		int n = positions.length;
+		return (positions[city] - start + n) % n < segmentLength;
+	}
+
+	private void prepare(Distances distances, int n, int[][] neighbourLists) {
+		this.distances = distances;
+		if (neighbourLists != null) {
+			this.neighbourLists = neighbourLists;
+		}
+		else {
+			if (builtFor != distances || builtLists == null || builtLists.length != n) {
+				builtFor = distances;
+				builtLists = AntColony.buildNearestNeighbourLists(distances, n, neighbourListSize);
+			}
+			this.neighbourLists = builtLists;
+		}
+		if (positions == null || positions.length != n) {
+			positions = new int[n];
+			queue = new int[n];
+			queued = new boolean[n];
+		}
+	}
+}
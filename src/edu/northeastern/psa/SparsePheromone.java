@@ -0,0 +1,178 @@
+package edu.northeastern.psa;
+
+import java.util.Arrays;
+
+public class SparsePheromone {
+	// Row i holds the trails to candidateLists[i] in the same order, at offsets[i] .. offsets[i + 1] - 1.
+	private final int[] offsets;
+	private final int[] targets;
+	// Each row's entries again, ordered by target, so indexOf can binary search instead of scanning the row.
+	private final int[] sortedTargets;
+	private final int[] sortedIndices;
+	private final float[] values;
+	private final double[] heuristics;
+	private final double[] choices;
+	// Trail of every edge outside the candidate lists; it is reset and evaporated along with the stored ones.
+	private double defaultValue;
+
+	public SparsePheromone(int[][] neighbourLists, double initialValue) {
+		int n = neighbourLists.length;
+		offsets = new int[n + 1];
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] = offsets[i] + neighbourLists[i].length;
+		}
+
+		targets = new int[offsets[n]];
+		for (int i = 0; i < n; i++) {
+			System.arraycopy(neighbourLists[i], 0, targets, offsets[i], neighbourLists[i].length);
+		}
+
+		sortedTargets = targets.clone();
+		sortedIndices = new int[targets.length];
+		for (int i = 0; i < n; i++) {
+			for (int index = offsets[i]; index < offsets[i + 1]; index++) {
+				int target = targets[index];
+				int position = index;
+				while (position > offsets[i] && sortedTargets[position - 1] > target) {
+					sortedTargets[position] = sortedTargets[position - 1];
+					sortedIndices[position] = sortedIndices[position - 1];
+					position--;
+				}
+				sortedTargets[position] = target;
+				sortedIndices[position] = index;
+			}
+		}
+
+		values = new float[targets.length];
+		heuristics = new double[targets.length];
+		choices = new double[targets.length];
+		defaultValue = initialValue;
+		fill(initialValue);
+	}
+
+	public int size() {
+		return targets.length;
+	}
+
+	public int getOffset(int i) {
+		return offsets[i];
+	}
+
+	public double getDefaultValue() {
+		return defaultValue;
+	}
+
+	public int indexOf(int i, int j) {
+		int low = offsets[i];
+		int high = offsets[i + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (sortedTargets[mid] < j) {
+				low = mid + 1;
+			}
+			else if (sortedTargets[mid] > j) {
+				high = mid - 1;
+			}
+			else {
+				return sortedIndices[mid];
+			}
+		}
+		return -1;
+	}
+
+	public double get(int i, int j) {
+		int index = indexOf(i, j);
+		return index == -1 ? defaultValue : values[index];
+	}
+
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	public double getChoice(int index) {
+		return choices[index];
+	}
+
+	public void fill(double value) {
+		Arrays.fill(values, (float) value);
+		defaultValue = value;
+	}
+
+	public void copyFrom(SparsePheromone previous, int[] previousIndex) {
+		for (int i = 0; i + 1 < offsets.length; i++) {
+			int previousRow = previousIndex[i];
+			for (int index = offsets[i]; index < offsets[i + 1]; index++) {
+				int previousTarget = previousIndex[targets[index]];
+				values[index] = previousRow == previousTarget ? (float) defaultValue
+						: (float) previous.get(previousRow, previousTarget);
+			}
+		}
+	}
+
+	public void evaporate(double evaporationRate, double minValue) {
+		float factor = (float) (1 - evaporationRate);
+		float floor = (float) minValue;
+		for (int index = 0; index < values.length; index++) {
+			values[index] = Math.max(values[index] * factor, floor);
+		}
+		defaultValue = Math.max(defaultValue * (1 - evaporationRate), minValue);
+	}
+
+	public void clamp(double minValue, double maxValue) {
+		float floor = (float) minValue;
+		float ceiling = (float) maxValue;
+		for (int index = 0; index < values.length; index++) {
+			values[index] = Math.min(Math.max(values[index], floor), ceiling);
+		}
+		defaultValue = Math.min(Math.max(defaultValue, minValue), maxValue);
+	}
+
+	public void deposit(int i, int j, double amount, double maxValue) {
+		depositAt(indexOf(i, j), amount, maxValue);
+		depositAt(indexOf(j, i), amount, maxValue);
+	}
+
+	private void depositAt(int index, double amount, double maxValue) {
+		if (index != -1) {
+			values[index] = (float) Math.min(values[index] + amount, maxValue);
+		}
+	}
+
+	public void updateHeuristics(Distances distances, double beta) {
+		for (int i = 0; i + 1 < offsets.length; i++) {
+			for (int index = offsets[i]; index < offsets[i + 1]; index++) {
+				heuristics[index] = Math.pow(1.0 / distances.get(i, targets[index]), beta);
+			}
+		}
+	}
+
+	public void updateChoices(double alpha) {
+		for (int index = 0; index < values.length; index++) {
+			double pheromone = values[index];
+			choices[index] = (alpha == 1 ? pheromone : Math.pow(pheromone, alpha)) * heuristics[index];
+		}
+	}
+
+	public double getBranchingFactor(double lambda) {
+		int n = offsets.length - 1;
+		long branches = 0;
+
+		for (int i = 0; i < n; i++) {
+			double minPheromone = Double.POSITIVE_INFINITY;
+			double maxPheromone = Double.NEGATIVE_INFINITY;
+			for (int index = offsets[i]; index < offsets[i + 1]; index++) {
+				minPheromone = Math.min(minPheromone, values[index]);
+				maxPheromone = Math.max(maxPheromone, values[index]);
+			}
+
+			double cutoff = minPheromone + lambda * (maxPheromone - minPheromone);
+			for (int index = offsets[i]; index < offsets[i + 1]; index++) {
+				if (values[index] >= cutoff) {
+					branches += 1;
+				}
+			}
+		}
+
+		return (double) branches / n;
+	}
+}
@@ -0,0 +1,166 @@
+package edu.northeastern.psa;
+
+public class TwoOptLocalSearch implements LocalSearch {
+	private static final double EPSILON = 1e-9;
+
+	private final int neighbourListSize;
+	private Distances distances;
+	private int[][] neighbourLists;
+	private Distances builtFor;
+	private int[][] builtLists;
+	private int[] positions;
+	private int[] queue;
+	private boolean[] queued;
+	private final int[] touched = new int[4];
+
+	public TwoOptLocalSearch() {
+		this(10);
+	}
+
+	public TwoOptLocalSearch(int neighbourListSize) {
+		this.neighbourListSize = neighbourListSize;
+	}
+
+	@Override
+	public int getNeighbourListSize() {
+		return neighbourListSize;
+	}
+
+	@Override
+	public double improve(int[] tour, double tourLength, Distances distances, int[][] neighbourLists) {
+		int n = tour.length;
+		if (n < 4) {
+			return tourLength;
+		}
+		prepare(distances, n, neighbourLists);
+
+		for (int i = 0; i < n; i++) {
+			positions[tour[i]] = i;
+			queue[i] = tour[i];
+			queued[tour[i]] = true;
+		}
+
+		// Cities whose don't-look bit is off sit in a circular queue.
+		int head = 0;
+		int size = n;
+		double gain = 0;
+
+		while (size > 0) {
+			int a = queue[head];
+			head = head + 1 == n ? 0 : head + 1;
+			size--;
+			queued[a] = false;
+
+			double moveGain = improveCity(tour, a);
+			if (moveGain > 0) {
+				gain += moveGain;
+				for (int i = 0; i < 4; i++) {
+					int city = touched[i];
+					if (!queued[city]) {
+						queued[city] = true;
+						queue[(head + size) % n] = city;
+						size++;
+					}
+				}
+			}
+		}
+
+		return tourLength - gain;
+	}
+
+	private double improveCity(int[] tour, int a) {
+		int n = tour.length;
+
+		// Successor direction: replace (a, succ a) and (c, succ c) with (a, c) and (succ a, succ c).
+		int b = tour[(positions[a] + 1) % n];
+		double ab = distances.get(a, b);
+		for (int c : neighbourLists[a]) {
+			double ac = distances.get(a, c);
+			if (ac >= ab) {
+				break;
+			}
+			int d = tour[(positions[c] + 1) % n];
+			if (c == b || d == a) {
+				continue;
+			}
+			double delta = ab + distances.get(c, d) - ac - distances.get(b, d);
+			if (delta > EPSILON) {
+				reverse(tour, positions[b], positions[c]);
+				markTouched(a, b, c, d);
+				return delta;
+			}
+		}
+
+		// Predecessor direction: replace (pred a, a) and (pred c, c) with (a, c) and (pred a, pred c).
+		b = tour[(positions[a] - 1 + n) % n];
+		ab = distances.get(a, b);
+		for (int c : neighbourLists[a]) {
+			double ac = distances.get(a, c);
+			if (ac >= ab) {
+				break;
+			}
+			int d = tour[(positions[c] - 1 + n) % n];
+			if (c == b || d == a) {
+				continue;
+			}
+			double delta = ab + distances.get(c, d) - ac - distances.get(b, d);
+			if (delta > EPSILON) {
+				reverse(tour, positions[a], positions[d]);
+				markTouched(a, b, c, d);
+				return delta;
+			}
+		}
+
+		return 0;
+	}
+
+	private void markTouched(int a, int b, int c, int d) {
+		touched[0] = a;
+		touched[1] = b;
+		touched[2] = c;
+		touched[3] = d;
+	}
+
+	private void reverse(int[] tour, int from, int to) {
+		int n = tour.length;
+		int length = (to - from + n) % n + 1;
+
+		// Reversing the complement gives the same cycle, so flip whichever side is shorter.
+		if (length * 2 > n) {
+			int newFrom = (to + 1) % n;
+			to = (from - 1 + n) % n;
+			from = newFrom;
+			length = n - length;
+		}
+
+		for (int swaps = length / 2; swaps > 0; swaps--) {
+			int first = tour[from];
+			int second = tour[to];
+			tour[from] = second;
+			positions[second] = from;
+			tour[to] = first;
+			positions[first] = to;
+			from = from + 1 == n ? 0 : from + 1;
+			to = to == 0 ? n - 1 : to - 1;
+		}
+	}
+
+	private void prepare(Distances distances, int n, int[][] neighbourLists) {
+		this.distances = distances;
+		if (neighbourLists != null) {
+			this.neighbourLists = neighbourLists;
+		}
+		else {
+			if (builtFor != distances || builtLists == null || builtLists.length != n) {
+				builtFor = distances;
+				builtLists = AntColony.buildNearestNeighbourLists(distances, n, neighbourListSize);
+			}
+			this.neighbourLists = builtLists;
+		}
+		if (positions == null || positions.length != n) {
+			positions = new int[n];
+			queue = new int[n];
+			queued = new boolean[n];
+		}
+	}
+}
@@ -5,6 +5,14 @@ import static org.mockito.Mockito.*;
 
 import edu.northeastern.psa.Ant;
 import edu.northeastern.psa.AntColony;
+import edu.northeastern.psa.CrimeLocationReader;
+import edu.northeastern.psa.Distances;
+import edu.northeastern.psa.LocalSearch;
+import edu.northeastern.psa.Location;
+import edu.northeastern.psa.MultiColony;
+import edu.northeastern.psa.OrOptLocalSearch;
+import edu.northeastern.psa.SparsePheromone;
+import edu.northeastern.psa.TwoOptLocalSearch;
 import org.junit.Before;
 import org.junit.Test;
 //import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +23,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AntColonyTest {
 
@@ -30,6 +40,21 @@ public class AntColonyTest {
         assertEquals(expectedDistance, distance, 1);
     }
 
+    @Test
+    public void testHaversineDistanceMatchesDistanceTable() {
+        AntColony antColony = new AntColony("src/edu/northeastern/psa/test/test.csv");
+        double[][] graph = antColony.getGraph();
+        List<Location> coords = antColony.getCoords();
+        for (int i = 0; i < graph.length; i++) {
+            for (int j = 0; j < graph.length; j++) {
+                Location from = coords.get(i);
+                Location to = coords.get(j);
+                assertEquals(antColony.getHaversineDistance(from.getLat(), to.getLat(), from.getLon(), to.getLon()),
+                        graph[i][j], 1e-9);
+            }
+        }
+    }
+
     @Test
     public void testGetHaversineDistanceWithMock() {
         AntColony antColony = new AntColony("src/edu/northeastern/psa/test/test.csv");
@@ -82,6 +107,33 @@ public class AntColonyTest {
         assertEquals(expectedWeightage, actualWeightage, 0.01);
     }
 
+    @Test
+    public void testChoiceInfoFollowsParameterChanges() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 1, 4},
+                {1, 0, 5},
+                {4, 5, 0}
+        });
+        antColony.setRewardMatrix(new double[][]{
+                {1, 1.1, 1.2},
+                {1.1, 1, 1.3},
+                {1.2, 1.3, 1}
+        });
+
+        antColony.setAlpha(2);
+        antColony.setBeta(3);
+        assertEquals(Math.pow(1.2, 2) * Math.pow(1.0 / 4, 3), antColony.getWeightage(0, 2), 1e-12);
+
+        antColony.setBeta(1);
+        assertEquals(Math.pow(1.2, 2) * 0.25, antColony.getWeightage(2, 0), 1e-12);
+
+        antColony.getRewardMatrix()[0][2] = 2;
+        antColony.updateChoiceInfo();
+        assertEquals(4 * 0.25, antColony.getWeightage(0, 2), 1e-12);
+        assertEquals(0, antColony.getWeightage(1, 1), 0);
+    }
+
     @Test
     public void testPrintRoute() {
         AntColony antColony = new AntColony();
@@ -115,37 +167,49 @@ public class AntColonyTest {
                 {4, 5, 0}
         });
 
-        Ant ant = new Ant();
-        List<Integer> visitedLocations = new ArrayList<>();
-        visitedLocations.add(2);
-        visitedLocations.add(1);
-        visitedLocations.add(0);
-        ant.setVisitedLocationsInOrder(visitedLocations);
+        Ant ant = new Ant(3);
+        ant.reset(2);
+        ant.visit(1);
+        ant.visit(0);
 
         double actualCost = antColony.getTourCost(ant);
         assertEquals(10, actualCost, 0);
     }
 
+    @Test
+    public void testConstructTourAccumulatesTourLength() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+
+        Ant ant = new Ant(4);
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < 20; i++) {
+            antColony.constructTour(ant, random);
+            assertTrue(ant.isTourComplete());
+            assertEquals(antColony.getTourCost(ant), ant.getTourLength(), 1e-12);
+        }
+    }
+
     @Test
     public void testGenerateRandomVertex() {
         AntColony antColony = new AntColony();
         RandomNumberGenerator randomMock = mock(RandomNumberGenerator.class);
         when(randomMock.nextDouble()).thenReturn(0.5);
-        AntColony.setR(randomMock);
-        double[][] probabilities = new double[][]{
-                {0.4, 1},
-                {0.6, 2},
-                {0.8, 3}
-        };
-
         Ant mockAnt = mock(Ant.class);
-        when(mockAnt.getVisited()).thenReturn(new HashSet<>());
-        when(mockAnt.getVisitedLocationsInOrder()).thenReturn(new ArrayList<>());
+        when(mockAnt.getCandidates()).thenReturn(new int[]{1, 2, 3});
+        when(mockAnt.getCumulativeWeights()).thenReturn(new double[]{0.4, 0.6, 0.8});
 
 
         int expectedSelectedLocation = 2;
-        int actualSelectedLocation = antColony.generateRandomVertex(mockAnt, 1, probabilities);
+        int actualSelectedLocation = antColony.generateRandomVertex(mockAnt, 3, randomMock.nextDouble());
         assertEquals(expectedSelectedLocation, actualSelectedLocation);
+        verify(mockAnt).visit(2);
 
     }
 
@@ -164,12 +228,104 @@ public class AntColonyTest {
         doReturn(0.8).when(spyColony).getWeightage(1, 2);
 
 
-        Ant a = new Ant();
-        a.setVisited(new HashSet<>());
-        double[][] actualProbabilities = spyColony.generateProbabilities(1, a);
+        Ant a = new Ant(3);
+        int candidateCount = spyColony.generateProbabilities(1, a);
+
+        assertEquals(2, candidateCount);
+        assertArrayEquals(new int[]{0, 2}, Arrays.copyOf(a.getCandidates(), candidateCount));
+        assertArrayEquals(new double[]{0.2, 1.0}, Arrays.copyOf(a.getCumulativeWeights(), candidateCount), 1e-12);
+    }
+
+    @Test
+    public void testSampleVertexMatchesProportionalRule() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 1, 2, 3, 4},
+                {1, 0, 1, 1, 1},
+                {2, 1, 0, 1, 1},
+                {3, 1, 1, 0, 1},
+                {4, 1, 1, 1, 0}
+        });
+        antColony.setBeta(1);
+        antColony.setRewardMatrix(new double[][]{
+                {1, 1, 2, 3, 4},
+                {1, 1, 1, 1, 1},
+                {2, 1, 1, 1, 1},
+                {3, 1, 1, 1, 1},
+                {4, 1, 1, 1, 1}
+        });
+
+        Ant ant = new Ant(5);
+        ant.reset(0);
+        ant.visit(2);
+        int candidateCount = antColony.generateProbabilities(0, ant);
+        assertEquals(3, candidateCount);
+
+        // weightage from 0 is tau / d: 1 for vertex 1, 1 for vertex 3 and 1 for vertex 4
+        double[] expectedProbabilities = new double[]{1.0 / 3, 1.0 / 3, 1.0 / 3};
+        int[] expectedVertices = new int[]{1, 3, 4};
+        int samples = 300000;
+        int[] counts = new int[5];
+        SplittableRandom random = new SplittableRandom(2023);
+        for (int i = 0; i < samples; i++) {
+            counts[antColony.sampleVertex(ant, candidateCount, random.nextDouble())]++;
+        }
 
-        double[][] expectedProbabilities = new double[][]{ {0.2, 0}, {1, 2}, {0, 0} };
-        assertArrayEquals(expectedProbabilities, actualProbabilities);
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[2]);
+        double chiSquare = 0;
+        for (int i = 0; i < expectedVertices.length; i++) {
+            double expected = expectedProbabilities[i] * samples;
+            chiSquare += Math.pow(counts[expectedVertices[i]] - expected, 2) / expected;
+        }
+        // 99.9th percentile of the chi-square distribution with 2 degrees of freedom
+        assertTrue("chi-square " + chiSquare, chiSquare < 13.82);
+    }
+
+    @Test
+    public void testSampleVertexMatchesSkewedProportionalRule() {
+        AntColony antColony = new AntColony();
+        AntColony spyColony = spy(antColony);
+        doReturn(0.1).when(spyColony).getWeightage(0, 1);
+        doReturn(0.0).when(spyColony).getWeightage(0, 2);
+        doReturn(0.6).when(spyColony).getWeightage(0, 3);
+        doReturn(0.3).when(spyColony).getWeightage(0, 4);
+
+        Ant ant = new Ant(5);
+        ant.reset(0);
+        int candidateCount = spyColony.generateProbabilities(0, ant);
+        assertEquals(4, candidateCount);
+
+        double[] expectedProbabilities = new double[]{0, 0.1, 0, 0.6, 0.3};
+        int samples = 300000;
+        int[] counts = new int[5];
+        SplittableRandom random = new SplittableRandom(6205);
+        for (int i = 0; i < samples; i++) {
+            counts[antColony.sampleVertex(ant, candidateCount, random.nextDouble())]++;
+        }
+
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[2]);
+        double chiSquare = 0;
+        for (int vertex : new int[]{1, 3, 4}) {
+            double expected = expectedProbabilities[vertex] * samples;
+            chiSquare += Math.pow(counts[vertex] - expected, 2) / expected;
+        }
+        assertTrue("chi-square " + chiSquare, chiSquare < 13.82);
+    }
+
+    @Test
+    public void testNextUnvisited() {
+        Ant ant = new Ant(70);
+        ant.reset(0);
+        for (int i = 2; i < 66; i++) {
+            ant.visit(i);
+        }
+
+        assertEquals(1, ant.nextUnvisited(0));
+        assertEquals(66, ant.nextUnvisited(2));
+        assertEquals(69, ant.nextUnvisited(69));
+        assertEquals(-1, ant.nextUnvisited(70));
     }
 
     @Test
@@ -182,18 +338,21 @@ public class AntColonyTest {
         };
         antColony.setRewardMatrix(rewardMatrix);
 
-        Ant mockAnt1 = mock(Ant.class);
-        when(mockAnt1.getVisitedLocationsInOrder()).thenReturn(new ArrayList<>(Arrays.asList(0, 1)));
+        Ant ant1 = new Ant(3);
+        ant1.reset(0);
+        ant1.visit(1);
 
-        Ant mockAnt2 = mock(Ant.class);
-        when(mockAnt2.getVisitedLocationsInOrder()).thenReturn(new ArrayList<>(Arrays.asList(1, 2)));
+        Ant ant2 = new Ant(3);
+        ant2.reset(1);
+        ant2.visit(2);
 
-        AntColony spyColony = spy(antColony);
+        ant1.setTourLength(1.0);
+        ant2.setTourLength(1.0);
 
-        doReturn(1.0).when(spyColony).getTourCost(mockAnt1);
-        doReturn(1.0).when(spyColony).getTourCost(mockAnt2);
+        AntColony spyColony = spy(antColony);
 
-        spyColony.alterRewardMatrix(new Ant[]{mockAnt1, mockAnt2});
+        spyColony.alterRewardMatrix(new Ant[]{ant1, ant2});
+        verify(spyColony, never()).getTourCost(any(Ant.class));
 
         double[][] expectedRewardMatrix = new double[][]{
                 {1, 2.9, 0.9},
@@ -206,6 +365,1213 @@ public class AntColonyTest {
 
     }
 
+    @Test
+    public void testAntVisitedMaskAcrossWords() {
+        Ant ant = new Ant(130);
+        ant.reset(129);
+        ant.visit(0);
+        ant.visit(64);
+
+        assertTrue(ant.isVisited(129));
+        assertTrue(ant.isVisited(0));
+        assertTrue(ant.isVisited(64));
+        assertFalse(ant.isVisited(63));
+        assertFalse(ant.isVisited(128));
+        assertEquals(3, ant.getVisitedCount());
+        assertEquals(Arrays.asList(129, 0, 64), ant.getVisitedLocationsInOrder());
+
+        ant.reset(5);
+        assertFalse(ant.isVisited(129));
+        assertFalse(ant.isVisited(64));
+        assertTrue(ant.isVisited(5));
+        assertEquals(1, ant.getVisitedCount());
+        assertEquals(5, ant.getCurrentLocationKey());
+    }
+
+    @Test
+    public void testBuildCandidateLists() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setCandidateListSize(2);
+        antColony.buildCandidateLists();
+
+        int[][] expectedCandidateLists = new int[][]{
+                {1, 3},
+                {3, 0},
+                {0, 1},
+                {1, 0}
+        };
+        assertArrayEquals(expectedCandidateLists, antColony.getCandidateLists());
+    }
+
+    @Test
+    public void testSelectNextVertexFallsBackToBestUnvisited() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(new double[][]{
+                {1, 1, 1, 1},
+                {1, 1, 1, 1},
+                {1, 1, 1, 1},
+                {1, 1, 1, 1},
+        });
+        antColony.setCandidateListSize(1);
+        antColony.buildCandidateLists();
+
+        Ant ant = new Ant(4);
+        ant.reset(1);
+        ant.visit(3);
+
+        // the only candidate of 3 is 1, which is already visited
+        assertEquals(0, antColony.selectNextVertex(ant, 3, new SplittableRandom(1)));
+        assertEquals(2, antColony.selectNextVertex(ant, 0, new SplittableRandom(1)));
+        assertTrue(ant.isTourComplete());
+    }
+
+    @Test
+    public void testTravellingSalesmanWithCandidateLists() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+
+        antColony.setRewardMatrix(new double[][]{
+                {1, 1, 1, 1},
+                {1, 1, 1, 1},
+                {1, 1, 1, 1},
+                {1, 1, 1, 1},
+        });
+        antColony.setCandidateListSize(2);
+
+        double actualMinCost = antColony.travellingSalesman(100,100, new ArrayList<>());
+        assertEquals(18, actualMinCost, 0.01);
+    }
+
+    @Test
+    public void testParallelConstructionIsReproducible() {
+        List<String> sequentialStats = new ArrayList<>();
+        AntColony sequentialColony = new AntColony("src/edu/northeastern/psa/file.csv");
+        sequentialColony.setCandidateListSize(10);
+        sequentialColony.setSeed(42);
+        double sequentialCost = sequentialColony.travellingSalesman(20, 5, sequentialStats);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<String> parallelStats = new ArrayList<>();
+            AntColony parallelColony = new AntColony("src/edu/northeastern/psa/file.csv");
+            parallelColony.setCandidateListSize(10);
+            parallelColony.setSeed(42);
+            parallelColony.setExecutor(executor);
+            double parallelCost = parallelColony.travellingSalesman(20, 5, parallelStats);
+
+            assertEquals(sequentialCost, parallelCost, 0);
+            assertEquals(sequentialStats, parallelStats);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLazyEvaporationMatchesDenseSweep() {
+        double[][] graph = new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        };
+        AntColony denseColony = new AntColony();
+        denseColony.setGraph(graph);
+        denseColony.setRewardMatrix(onesMatrix(4));
+        denseColony.setEvaporationRate(0.9);
+
+        AntColony lazyColony = new AntColony();
+        lazyColony.setGraph(graph);
+        lazyColony.setRewardMatrix(onesMatrix(4));
+        lazyColony.setEvaporationRate(0.9);
+        lazyColony.setLazyEvaporation(true);
+        lazyColony.updateChoiceInfo();
+
+        Ant ant1 = new Ant(4);
+        ant1.reset(0);
+        ant1.visit(2);
+        ant1.visit(1);
+        ant1.visit(3);
+        Ant ant2 = new Ant(4);
+        ant2.reset(1);
+        ant2.visit(0);
+        ant2.visit(2);
+        ant2.visit(3);
+        ant1.setTourLength(denseColony.getTourCost(ant1));
+        ant2.setTourLength(denseColony.getTourCost(ant2));
+
+        // 0.1^150 drops below the renormalisation threshold part way through
+        for (int generation = 0; generation < 150; generation++) {
+            Ant[] ants = generation % 3 == 0 ? new Ant[]{ant1, ant2} : new Ant[]{ant2};
+            denseColony.alterRewardMatrix(ants);
+            lazyColony.alterRewardMatrix(ants);
+
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 4; j++) {
+                    if (i != j) {
+                        double expected = denseColony.getRewardMatrix()[i][j];
+                        assertEquals(expected, lazyColony.getPheromone(i, j), expected * 1e-9);
+                    }
+                }
+            }
+        }
+
+        // choice info is kept proportional to the true pheromone, which is all the roulette wheel needs
+        denseColony.updateChoiceInfo();
+        double ratio = lazyColony.getWeightage(0, 2) / denseColony.getWeightage(0, 2);
+        assertEquals(ratio, lazyColony.getWeightage(1, 3) / denseColony.getWeightage(1, 3), ratio * 1e-9);
+
+        double[][] lazyRewardMatrix = lazyColony.getRewardMatrix();
+        assertEquals(denseColony.getRewardMatrix()[0][2], lazyRewardMatrix[0][2], lazyRewardMatrix[0][2] * 1e-9);
+    }
+
+    @Test
+    public void testLazyEvaporationKeepsChoiceInfoFiniteForLargeAlpha() {
+        AntColony lazyColony = new AntColony();
+        lazyColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        lazyColony.setRewardMatrix(onesMatrix(4));
+        lazyColony.setAlpha(4);
+        lazyColony.setEvaporationRate(0.5);
+        lazyColony.setLazyEvaporation(true);
+        lazyColony.updateChoiceInfo();
+
+        Ant ant = new Ant(4);
+        ant.reset(0);
+        ant.visit(1);
+        ant.visit(3);
+        ant.visit(2);
+        ant.setTourLength(18);
+        for (int generation = 0; generation < 400; generation++) {
+            lazyColony.alterRewardMatrix(new Ant[]{ant});
+            for (int i = 0; i < 4; i++) {
+                for (int j = 0; j < 4; j++) {
+                    if (i != j) {
+                        assertTrue(Double.isFinite(lazyColony.getWeightage(i, j)));
+                    }
+                }
+            }
+        }
+        assertTrue(lazyColony.getWeightage(0, 1) > lazyColony.getWeightage(0, 2));
+    }
+
+    @Test
+    public void testTravellingSalesmanWithLazyEvaporation() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setLazyEvaporation(true);
+
+        double actualMinCost = antColony.travellingSalesman(100,100, new ArrayList<>());
+        assertEquals(18, actualMinCost, 0.01);
+    }
+
+    @Test
+    public void testAlterRewardMatrixMaxMinClampsToBounds() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setEvaporationRate(0.5);
+        antColony.setPBest(0.5);
+        antColony.updatePheromoneBounds(18);
+
+        double tauMax = 1.0 / (0.5 * 18);
+        assertEquals(tauMax, antColony.getTauMax(), 1e-12);
+        assertTrue(antColony.getTauMin() > 0 && antColony.getTauMin() < tauMax);
+
+        // Only the deposited tour 0-1-3-2 may rise above tau_min, and never above tau_max.
+        for (int generation = 0; generation < 50; generation++) {
+            antColony.alterRewardMatrixMaxMin(new int[]{0, 1, 3, 2}, 18);
+        }
+
+        double[][] rewardMatrix = antColony.getRewardMatrix();
+        assertEquals(tauMax, rewardMatrix[0][1], 1e-12);
+        assertEquals(tauMax, rewardMatrix[3][1], 1e-12);
+        assertEquals(tauMax, rewardMatrix[2][3], 1e-12);
+        assertEquals(tauMax, rewardMatrix[0][2], 1e-12);
+        assertEquals(antColony.getTauMin(), rewardMatrix[0][3], 1e-12);
+        assertEquals(antColony.getTauMin(), rewardMatrix[1][2], 1e-12);
+        assertEquals(1, rewardMatrix[1][1], 0);
+    }
+
+    @Test
+    public void testTravellingSalesmanWithMaxMinAntSystem() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setVariant(AntColony.Variant.MAX_MIN_ANT_SYSTEM);
+        antColony.setStagnationLimit(5);
+
+        double actualMinCost = antColony.travellingSalesman(10, 50, new ArrayList<>());
+        assertEquals(18, actualMinCost, 0.01);
+        assertEquals(18, antColony.getBestTourLength(), 0.01);
+        assertEquals(1.0 / (0.1 * 18), antColony.getTauMax(), 1e-12);
+
+        double[][] rewardMatrix = antColony.getRewardMatrix();
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                if (i != j) {
+                    assertTrue(rewardMatrix[i][j] >= antColony.getTauMin() - 1e-12);
+                    assertTrue(rewardMatrix[i][j] <= antColony.getTauMax() + 1e-12);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAntColonySystemPheromoneUpdates() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setVariant(AntColony.Variant.ANT_COLONY_SYSTEM);
+        antColony.setEvaporationRate(0.5);
+        antColony.setLocalEvaporationRate(0.5);
+
+        // tau0 is still 0 here, so each crossed edge halves.
+        antColony.applyLocalPheromoneUpdate(0, 1);
+        assertEquals(0.5, antColony.getPheromone(0, 1), 1e-12);
+        assertEquals(0.5, antColony.getPheromone(1, 0), 1e-12);
+
+        antColony.alterRewardMatrixGlobalBest(new int[]{0, 1, 3, 2}, 18);
+        assertEquals(0.25 + 0.5 / 18, antColony.getPheromone(0, 1), 1e-12);
+        assertEquals(0.5 + 0.5 / 18, antColony.getPheromone(1, 3), 1e-12);
+        assertEquals(0.5 + 0.5 / 18, antColony.getPheromone(2, 0), 1e-12);
+        assertEquals(1, antColony.getPheromone(0, 3), 0);
+        assertEquals(1, antColony.getPheromone(1, 2), 0);
+    }
+
+    @Test
+    public void testTravellingSalesmanWithAntColonySystem() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setCandidateListSize(2);
+        antColony.setVariant(AntColony.Variant.ANT_COLONY_SYSTEM);
+
+        double actualMinCost = antColony.travellingSalesman(10, 50, new ArrayList<>());
+        assertEquals(18, actualMinCost, 0.01);
+
+        // The nearest-neighbour tour from 0 is 0-1-3-2-0 (19); the best tour 0-2-1-3-0 is reinforced.
+        assertEquals(1.0 / (4 * 19), antColony.getTau0(), 1e-12);
+        assertTrue(antColony.getPheromone(1, 2) > antColony.getTau0());
+    }
+
+    @Test
+    public void testTwoOptLocalSearchImprovesTour() {
+        assertLocalSearchImprovesTour(new TwoOptLocalSearch(8));
+    }
+
+    @Test
+    public void testOrOptLocalSearchImprovesTour() {
+        assertLocalSearchImprovesTour(new OrOptLocalSearch(8));
+    }
+
+    @Test
+    public void testOrOptMovesKeepTourLengthConsistent() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 50; trial++) {
+            int n = 6 + random.nextInt(40);
+            double[][] graph = new double[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < i; j++) {
+                    graph[i][j] = graph[j][i] = 1 + random.nextInt(100);
+                }
+            }
+            int[] tour = new int[n];
+            for (int i = 0; i < n; i++) {
+                tour[i] = i;
+            }
+            double initialLength = tourLength(tour, graph);
+
+            double improvedLength = new OrOptLocalSearch(5).improve(tour, initialLength, graph);
+
+            assertEquals(tourLength(tour, graph), improvedLength, 1e-9);
+            assertTrue(improvedLength <= initialLength);
+            boolean[] seen = new boolean[n];
+            for (int city : tour) {
+                assertFalse(seen[city]);
+                seen[city] = true;
+            }
+        }
+    }
+
+    @Test
+    public void testLocalSearchWalksGivenNeighbourLists() {
+        int n = 12;
+        double[][] graph = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                graph[i][j] = Math.abs(i - j);
+            }
+        }
+        int[] scrambled = new int[]{0, 6, 1, 7, 2, 8, 3, 9, 4, 10, 5, 11};
+        double initialLength = tourLength(scrambled, graph);
+
+        // with no neighbours to try, neither search can move anything
+        for (LocalSearch localSearch : new LocalSearch[]{new TwoOptLocalSearch(), new OrOptLocalSearch()}) {
+            int[] tour = scrambled.clone();
+            assertEquals(initialLength, localSearch.improve(tour, initialLength, Distances.of(graph), new int[n][0]), 0);
+            assertArrayEquals(scrambled, tour);
+
+            double improvedLength = localSearch.improve(tour, initialLength, Distances.of(graph),
+                    AntColony.buildNearestNeighbourLists(graph, 4));
+            assertTrue(improvedLength < initialLength);
+            assertEquals(tourLength(tour, graph), improvedLength, 1e-9);
+        }
+    }
+
+    @Test
+    public void testColonyPassesCandidateListsToLocalSearch() {
+        LocalSearch localSearch = mock(LocalSearch.class);
+        when(localSearch.getNeighbourListSize()).thenReturn(3);
+        when(localSearch.improve(any(int[].class), anyDouble(), any(Distances.class), any(int[][].class)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+
+        AntColony antColony = new AntColony("src/edu/northeastern/psa/file.csv");
+        antColony.setLocalSearch(localSearch);
+        antColony.setCandidateListSize(2);
+        antColony.travellingSalesman(2, 1, new ArrayList<>());
+        verify(localSearch, atLeastOnce()).improve(any(int[].class), anyDouble(), any(Distances.class),
+                same(antColony.getCandidateLists()));
+
+        // without candidate lists the colony builds lists of the search's own size
+        antColony.setCandidateListSize(0);
+        antColony.travellingSalesman(2, 2, new ArrayList<>());
+        verify(localSearch, atLeastOnce()).improve(any(int[].class), anyDouble(), any(Distances.class),
+                argThat(lists -> lists != null && lists.length == antColony.getLocationCount() && lists[0].length == 3));
+    }
+
+    @Test
+    public void testTravellingSalesmanWithLocalSearch() {
+        AntColony antColony = new AntColony("src/edu/northeastern/psa/file.csv");
+        antColony.setCandidateListSize(10);
+        antColony.setSeed(7);
+        antColony.setLocalSearch(new TwoOptLocalSearch());
+        antColony.setLocalSearchMode(AntColony.LocalSearchMode.EVERY_ANT);
+
+        List<String> stats = new ArrayList<>();
+        double minCost = antColony.travellingSalesman(10, 3, stats);
+
+        assertEquals(3, stats.size());
+        for (String stat : stats) {
+            String[] columns = stat.split(",");
+            assertEquals(5, columns.length);
+            assertTrue(Double.parseDouble(columns[4]) > 0);
+        }
+        assertEquals(minCost, antColony.getBestTourLength(), 0);
+        assertEquals(minCost, tourLength(antColony.getBestTour(), antColony.getGraph()), 1e-6);
+    }
+
+    @Test
+    public void testStopConditions() {
+        double[][] graph = new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        };
+
+        AntColony unlimited = new AntColony();
+        unlimited.setGraph(graph);
+        unlimited.setRewardMatrix(onesMatrix(4));
+        unlimited.travellingSalesman(5, 20, new ArrayList<>());
+        assertEquals(AntColony.StopReason.GENERATION_LIMIT, unlimited.getStopReason());
+
+        AntColony targeted = new AntColony();
+        targeted.setGraph(graph);
+        targeted.setRewardMatrix(onesMatrix(4));
+        targeted.setTargetTourLength(18);
+        List<String> targetedStats = new ArrayList<>();
+        assertEquals(18, targeted.travellingSalesman(100, 1000, targetedStats), 0.01);
+        assertEquals(AntColony.StopReason.TARGET_REACHED, targeted.getStopReason());
+        assertTrue(targetedStats.size() < 1000);
+
+        AntColony stalled = new AntColony();
+        stalled.setGraph(graph);
+        stalled.setRewardMatrix(onesMatrix(4));
+        stalled.setMaxGenerationsWithoutImprovement(5);
+        List<String> stalledStats = new ArrayList<>();
+        stalled.travellingSalesman(10, 1000, stalledStats);
+        assertEquals(AntColony.StopReason.NO_IMPROVEMENT, stalled.getStopReason());
+        assertTrue(stalledStats.size() < 1000);
+
+        AntColony converged = new AntColony();
+        converged.setGraph(graph);
+        converged.setRewardMatrix(onesMatrix(4));
+        converged.setEvaporationRate(0.9);
+        converged.setBranchingFactorLimit(2);
+        converged.setStagnationCheckInterval(5);
+        List<String> convergedStats = new ArrayList<>();
+        converged.travellingSalesman(10, 1000, convergedStats);
+        assertEquals(AntColony.StopReason.STAGNATION, converged.getStopReason());
+        assertEquals(0, convergedStats.size() % 5);
+        assertTrue(convergedStats.size() < 1000);
+
+        AntColony timed = new AntColony("src/edu/northeastern/psa/file.csv");
+        timed.setCandidateListSize(10);
+        timed.setTimeLimitMillis(1);
+        List<String> timedStats = new ArrayList<>();
+        double minCost = timed.travellingSalesman(5, 1000, timedStats);
+        assertEquals(AntColony.StopReason.TIME_LIMIT, timed.getStopReason());
+        assertTrue(timedStats.size() < 1000);
+        assertEquals(minCost, tourLength(timed.getBestTour(), timed.getGraph()), 1e-6);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStagnationCheckIntervalMustBePositive() {
+        new AntColony().setStagnationCheckInterval(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPopulationSizeMustBePositive() {
+        new AntColony().setPopulationSize(0);
+    }
+
+    @Test
+    public void testGetBranchingFactor() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[3][3]);
+        antColony.setRewardMatrix(onesMatrix(3));
+        assertEquals(2, antColony.getBranchingFactor(0.05), 0);
+
+        antColony.setRewardMatrix(new double[][]{
+                {0, 1, 0.01},
+                {1, 0, 1},
+                {0.01, 1, 0},
+        });
+        // Rows 0 and 2 keep a single strong edge; row 1 has two equal ones.
+        assertEquals(4.0 / 3, antColony.getBranchingFactor(0.05), 1e-12);
+    }
+
+    @Test
+    public void testAcceptMigrant() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.startRun(5);
+
+        assertTrue(antColony.acceptMigrant(new int[]{0, 1, 2, 3}, 23));
+        assertEquals(1 + 1.0 / 23, antColony.getPheromone(1, 2), 1e-12);
+        assertTrue(antColony.acceptMigrant(new int[]{0, 2, 1, 3}, 18));
+        assertFalse(antColony.acceptMigrant(new int[]{0, 1, 3, 2}, 19));
+        assertArrayEquals(new int[]{0, 2, 1, 3}, antColony.getBestTour());
+        assertEquals(18, antColony.getBestTourLength(), 0);
+
+        antColony.runGenerations(5, 3, new ArrayList<>());
+        assertEquals(3, antColony.getGeneration());
+        assertEquals(18, antColony.getBestTourLength(), 0);
+    }
+
+    @Test
+    public void testMultiColonyMigratesBestTours() {
+        MultiColony multiColony = new MultiColony("src/edu/northeastern/psa/file.csv", 3);
+        multiColony.setTopology(MultiColony.Topology.ALL_TO_ALL);
+        multiColony.setMigrationInterval(4);
+        for (AntColony colony : multiColony.getColonies()) {
+            colony.setCandidateListSize(10);
+        }
+        multiColony.getColonies().get(1).setBeta(3);
+        multiColony.getColonies().get(2).setVariant(AntColony.Variant.MAX_MIN_ANT_SYSTEM);
+        assertArrayEquals(multiColony.getColonies().get(0).getGraph(), multiColony.getColonies().get(2).getGraph());
+
+        List<String> stats = new ArrayList<>();
+        double minCost = multiColony.travellingSalesman(5, 10, stats);
+
+        assertEquals(Arrays.asList("4", "8", "10"), Arrays.asList(
+                stats.get(0).split(",")[0], stats.get(1).split(",")[0], stats.get(2).split(",")[0]));
+        for (int i = 0; i < 3; i++) {
+            AntColony colony = multiColony.getColonies().get(i);
+            assertEquals(10, colony.getGeneration());
+            assertEquals(10, multiColony.getColonyStats(i).size());
+            assertTrue(colony.getBestTourLength() >= minCost);
+        }
+        assertTrue(multiColony.getMigrations() > 0);
+        assertEquals(minCost, tourLength(multiColony.getBestTour(), multiColony.getColonies().get(0).getGraph()), 1e-6);
+    }
+
+    @Test
+    public void testMultiColonyUpdatesLocationsOnEveryIsland() {
+        MultiColony multiColony = new MultiColony("src/edu/northeastern/psa/file.csv", 3);
+        for (AntColony colony : multiColony.getColonies()) {
+            colony.setCandidateListSize(8);
+        }
+        multiColony.travellingSalesman(5, 2, new ArrayList<>());
+        List<AntColony> colonies = multiColony.getColonies();
+        int n = colonies.get(0).getGraph().length;
+        assertNotSame(colonies.get(0).getCoords(), colonies.get(1).getCoords());
+
+        multiColony.removeLocation(7);
+        multiColony.addLocation(new Location(51.5, -0.12, "new-incident"));
+        for (AntColony colony : colonies) {
+            assertArrayEquals(colonies.get(0).getGraph(), colony.getGraph());
+            assertEquals(n, colony.getCoords().size());
+            assertEquals("new-incident", colony.getCoords().get(n - 1).getCrimeId());
+            assertArrayEquals(AntColony.buildNearestNeighbourLists(colony.getGraph(), 8), colony.getCandidateLists());
+            assertEquals(colony.getTourLength(colony.getBestTour()), colony.getBestTourLength(), 1e-9);
+        }
+        assertEquals(tourLength(multiColony.getBestTour(), colonies.get(0).getGraph()), multiColony.getBestTourLength(), 1e-9);
+
+        multiColony.travellingSalesman(5, 2, new ArrayList<>());
+        assertEquals(n, multiColony.getBestTour().length);
+    }
+
+    @Test
+    public void testPopulationBasedPheromoneUpdates() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setVariant(AntColony.Variant.POPULATION_BASED);
+        antColony.setPopulationSize(2);
+        antColony.clearPopulation();
+
+        double initial = 1.0 / 3;
+        double deposit = (1 - initial) / 2;
+        assertEquals(initial, antColony.getPheromone(0, 1), 1e-12);
+
+        antColony.addToPopulation(new int[]{0, 1, 2, 3}, 23);
+        antColony.addToPopulation(new int[]{0, 2, 1, 3}, 18);
+        assertEquals(initial + 2 * deposit, antColony.getPheromone(1, 2), 1e-12);
+        assertEquals(initial + deposit, antColony.getPheromone(0, 1), 1e-12);
+
+        // FIFO: the oldest tour 0-1-2-3 leaves and its edges lose their share.
+        antColony.addToPopulation(new int[]{0, 1, 3, 2}, 19);
+        assertEquals(initial + deposit, antColony.getPheromone(1, 2), 1e-12);
+        assertEquals(initial + deposit, antColony.getPheromone(0, 1), 1e-12);
+        assertEquals(initial + 2 * deposit, antColony.getPheromone(1, 3), 1e-12);
+        assertEquals(2, antColony.getPopulationCount());
+
+        int[][] tours = antColony.getPopulationTours();
+        double[] lengths = antColony.getPopulationLengths();
+        assertArrayEquals(new int[]{0, 2, 1, 3}, tours[0]);
+        assertArrayEquals(new double[]{18, 19}, lengths, 0);
+        double[][] expected = copyOf(antColony.getRewardMatrix());
+
+        AntColony restored = new AntColony();
+        restored.setGraph(antColony.getGraph());
+        restored.setRewardMatrix(onesMatrix(4));
+        restored.setVariant(AntColony.Variant.POPULATION_BASED);
+        restored.setPopulationSize(2);
+        restored.restorePopulation(tours, lengths);
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(expected[i], restored.getRewardMatrix()[i], 1e-12);
+        }
+
+        // Quality policy: a worse tour than the whole population is turned away.
+        restored.setPopulationPolicy(AntColony.PopulationPolicy.QUALITY);
+        assertFalse(restored.addToPopulation(new int[]{0, 1, 2, 3}, 23));
+        assertTrue(restored.addToPopulation(new int[]{0, 2, 1, 3}, 18));
+        assertArrayEquals(new double[]{18, 18}, restored.getPopulationLengths(), 0);
+    }
+
+    @Test
+    public void testTravellingSalesmanWithPopulationBasedAco() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setVariant(AntColony.Variant.POPULATION_BASED);
+
+        double actualMinCost = antColony.travellingSalesman(10, 20, new ArrayList<>());
+        assertEquals(18, actualMinCost, 0.01);
+        assertEquals(5, antColony.getPopulationCount());
+    }
+
+    private static double[][] copyOf(double[][] matrix) {
+        double[][] copy = new double[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i].clone();
+        }
+        return copy;
+    }
+
+    @Test
+    public void testSparsePheromoneMatchesDenseWithFullCandidateLists() {
+        double[][] graph = new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        };
+        AntColony denseColony = new AntColony();
+        denseColony.setGraph(graph);
+        denseColony.setRewardMatrix(onesMatrix(4));
+        denseColony.setCandidateListSize(3);
+        denseColony.startRun(2);
+
+        AntColony sparseColony = new AntColony();
+        sparseColony.setGraph(graph);
+        sparseColony.setRewardMatrix(onesMatrix(4));
+        sparseColony.setCandidateListSize(3);
+        sparseColony.setSparsePheromone(true);
+        sparseColony.startRun(2);
+        assertNull(sparseColony.getRewardMatrix());
+        assertEquals(12, sparseColony.getSparsePheromone().size());
+
+        Ant ant1 = new Ant(4);
+        ant1.reset(0);
+        ant1.visit(1);
+        ant1.visit(2);
+        ant1.visit(3);
+        ant1.setTourLength(23);
+        Ant ant2 = new Ant(4);
+        ant2.reset(0);
+        ant2.visit(2);
+        ant2.visit(1);
+        ant2.visit(3);
+        ant2.setTourLength(18);
+
+        for (int generation = 0; generation < 5; generation++) {
+            denseColony.alterRewardMatrix(new Ant[]{ant1, ant2});
+            sparseColony.alterRewardMatrix(new Ant[]{ant1, ant2});
+        }
+        denseColony.updateChoiceInfo();
+
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                if (i != j) {
+                    assertEquals(denseColony.getPheromone(i, j), sparseColony.getPheromone(i, j), 1e-6);
+                    assertEquals(denseColony.getWeightage(i, j), sparseColony.getWeightage(i, j), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSparsePheromoneDefaultsOffCandidateEdges() {
+        SparsePheromone sparsePheromone = new SparsePheromone(new int[][]{{1}, {0, 2}, {1}}, 0.5);
+        assertEquals(4, sparsePheromone.size());
+        assertEquals(1, sparsePheromone.getOffset(1));
+        assertEquals(-1, sparsePheromone.indexOf(0, 2));
+
+        sparsePheromone.evaporate(0.5, 0);
+        sparsePheromone.deposit(0, 2, 1, Double.MAX_VALUE);
+        sparsePheromone.deposit(1, 2, 1, 1.1);
+        // edges off the candidate lists evaporate with the rest but take no deposits
+        assertEquals(0.25, sparsePheromone.get(0, 2), 0);
+        assertEquals(0.25, sparsePheromone.get(0, 1), 0);
+        assertEquals(1.1, sparsePheromone.get(1, 2), 1e-6);
+        assertEquals(1.1, sparsePheromone.get(2, 1), 1e-6);
+
+        sparsePheromone.evaporate(0.5, 0.2);
+        assertEquals(0.2, sparsePheromone.get(0, 2), 0);
+        sparsePheromone.fill(0.75);
+        assertEquals(0.75, sparsePheromone.getDefaultValue(), 0);
+
+        // node 3 is added next to node 0, so the new edge between them starts at the current default
+        SparsePheromone rebuilt = new SparsePheromone(new int[][]{{1, 3}, {0, 2}, {1}, {0}}, sparsePheromone.getDefaultValue());
+        rebuilt.copyFrom(sparsePheromone, new int[]{0, 1, 2, 0});
+        assertEquals(0.75, rebuilt.get(0, 3), 0);
+        assertEquals(0.75, rebuilt.get(3, 0), 0);
+    }
+
+    @Test
+    public void testSparseColonyFromFileMatchesDistanceTable() {
+        AntColony fileColony = new AntColony("src/edu/northeastern/psa/file.csv");
+        fileColony.setCandidateListSize(8);
+        fileColony.setSparsePheromone(true);
+        fileColony.setSeed(7);
+
+        // the same locations, but read from a prebuilt table
+        double[][] graph = fileColony.getGraph();
+        AntColony tableColony = new AntColony();
+        tableColony.setGraph(graph);
+        tableColony.setCandidateListSize(8);
+        tableColony.setSparsePheromone(true);
+        tableColony.setSeed(7);
+
+        assertEquals(graph.length, fileColony.getLocationCount());
+        double cost = fileColony.travellingSalesman(10, 5, new ArrayList<>());
+        assertEquals(tableColony.travellingSalesman(10, 5, new ArrayList<>()), cost, 1e-6);
+        assertEquals(tourLength(fileColony.getBestTour(), graph), cost, 1e-6);
+        assertArrayEquals(AntColony.buildNearestNeighbourLists(graph, 8), fileColony.getCandidateLists());
+
+        // every candidate is found in its own slot, and nothing else is
+        SparsePheromone sparsePheromone = fileColony.getSparsePheromone();
+        int[][] candidateLists = fileColony.getCandidateLists();
+        for (int i = 0; i < candidateLists.length; i++) {
+            for (int k = 0; k < candidateLists[i].length; k++) {
+                assertEquals(sparsePheromone.getOffset(i) + k, sparsePheromone.indexOf(i, candidateLists[i][k]));
+            }
+            assertEquals(-1, sparsePheromone.indexOf(i, i));
+        }
+    }
+
+    @Test
+    public void testSparseMaxMinTrailsStayWithinBounds() {
+        // ten points on a circle, with only the four nearest as candidates
+        int n = 10;
+        double[][] graph = new double[n][n];
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = i;
+            for (int j = 0; j < n; j++) {
+                graph[i][j] = 2 * Math.sin(Math.PI * Math.abs(i - j) / n);
+            }
+        }
+        AntColony antColony = new AntColony();
+        antColony.setGraph(graph);
+        antColony.setVariant(AntColony.Variant.MAX_MIN_ANT_SYSTEM);
+        antColony.setCandidateListSize(4);
+        antColony.setSparsePheromone(true);
+        antColony.startRun(10);
+        assertNull(antColony.getRewardMatrix());
+
+        double tauMax = antColony.getTauMax();
+        assertEquals(-1, antColony.getSparsePheromone().indexOf(0, 5));
+        assertEquals(tauMax, antColony.getPheromone(0, 5), 0);
+        antColony.alterRewardMatrixMaxMin(tour, antColony.getTourLength(tour));
+        assertEquals(0.9 * tauMax, antColony.getPheromone(0, 5), 1e-12);
+        for (int generation = 0; generation < 100; generation++) {
+            antColony.alterRewardMatrixMaxMin(tour, antColony.getTourLength(tour));
+        }
+        assertEquals(antColony.getTauMin(), antColony.getPheromone(0, 5), 0);
+        assertTrue(antColony.getWeightage(0, 5) < antColony.getWeightage(0, 1));
+
+        // back to dense trails, which are rebuilt instead of left null
+        antColony.setSparsePheromone(false);
+        assertEquals(n, antColony.getRewardMatrix().length);
+        antColony.startRun(10);
+        assertEquals(antColony.getTauMax(), antColony.getPheromone(0, 5), 0);
+    }
+
+    @Test
+    public void testTravellingSalesmanWithSparsePheromone() {
+        for (AntColony.Variant variant : new AntColony.Variant[]{
+                AntColony.Variant.ANT_SYSTEM, AntColony.Variant.MAX_MIN_ANT_SYSTEM}) {
+            AntColony antColony = new AntColony();
+            antColony.setGraph(new double[][]{
+                    {0, 3, 5, 4},
+                    {3, 0, 7, 2},
+                    {5, 7, 0, 9},
+                    {4, 2, 9, 0},
+            });
+            antColony.setRewardMatrix(onesMatrix(4));
+            antColony.setCandidateListSize(2);
+            antColony.setSparsePheromone(true);
+            antColony.setVariant(variant);
+
+            assertEquals(18, antColony.travellingSalesman(10, 30, new ArrayList<>()), 0.01);
+            assertTrue(antColony.getBranchingFactor(0.05) > 0);
+        }
+
+        AntColony populationColony = new AntColony();
+        populationColony.setGraph(new double[4][4]);
+        populationColony.setCandidateListSize(2);
+        populationColony.setSparsePheromone(true);
+        populationColony.setVariant(AntColony.Variant.POPULATION_BASED);
+        try {
+            populationColony.startRun(1);
+            fail("Expected the population-based variant to be rejected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("Sparse pheromone"));
+        }
+    }
+
+    @Test
+    public void testWarmStartSeedsPheromoneAndBestTour() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+
+        assertArrayEquals(new int[]{0, 1, 3, 2}, antColony.getNearestNeighbourTour(0));
+        assertEquals(19, antColony.getNearestNeighbourTourLength(0), 0);
+
+        antColony.addWarmStartTour(antColony.getNearestNeighbourTour(0));
+        antColony.addWarmStartTour(new int[]{0, 2, 1, 3});
+        antColony.startRun(10);
+
+        assertEquals(10.0 / 18, antColony.getTau0(), 1e-12);
+        assertEquals(18, antColony.getBestTourLength(), 0);
+        assertArrayEquals(new int[]{0, 2, 1, 3}, antColony.getBestTour());
+        assertEquals(10.0 / 18 + 1.0 / 18, antColony.getPheromone(1, 2), 1e-12);
+        assertEquals(10.0 / 18 + 1.0 / 19 + 1.0 / 18, antColony.getPheromone(0, 2), 1e-12);
+
+        try {
+            antColony.addWarmStartTour(new int[]{0, 1, 1, 3});
+            fail("Expected a repeated location to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("permutation"));
+        }
+
+        antColony.setVariant(AntColony.Variant.MAX_MIN_ANT_SYSTEM);
+        assertEquals(18, antColony.travellingSalesman(10, 5, new ArrayList<>()), 0);
+        assertEquals(1.0 / (0.1 * 18), antColony.getTau0(), 1e-12);
+    }
+
+    @Test
+    public void testMaxMinWarmStartRaisesSeedEdges() {
+        // ten points on a circle, seeded with the tour around it
+        int n = 10;
+        double[][] graph = new double[n][n];
+        int[] seed = new int[n];
+        for (int i = 0; i < n; i++) {
+            seed[i] = i;
+            for (int j = 0; j < n; j++) {
+                graph[i][j] = 2 * Math.sin(Math.PI * Math.abs(i - j) / n);
+            }
+        }
+        for (boolean sparse : new boolean[]{false, true}) {
+            AntColony antColony = new AntColony();
+            antColony.setGraph(graph);
+            antColony.setRewardMatrix(onesMatrix(n));
+            antColony.setVariant(AntColony.Variant.MAX_MIN_ANT_SYSTEM);
+            antColony.setCandidateListSize(4);
+            antColony.setSparsePheromone(sparse);
+            antColony.addWarmStartTour(seed);
+            antColony.startRun(10);
+
+            double tauMax = antColony.getTauMax();
+            assertEquals(1.0 / (0.1 * antColony.getTourLength(seed)), tauMax, 1e-6);
+            assertTrue(antColony.getTauMin() < 0.9 * tauMax);
+            assertEquals(tauMax, antColony.getPheromone(0, 1), 1e-6);
+            assertEquals(tauMax, antColony.getPheromone(9, 0), 1e-6);
+            assertEquals(0.9 * tauMax, antColony.getPheromone(0, 2), 1e-6);
+            assertTrue(antColony.getPheromone(4, 5) > antColony.getPheromone(4, 6));
+        }
+    }
+
+    @Test
+    public void testSaveAndLoadTourByCrimeIds() throws IOException {
+        AntColony antColony = new AntColony("src/edu/northeastern/psa/file.csv");
+        int[] tour = antColony.getNearestNeighbourTour(0);
+
+        java.io.File routeFile = java.io.File.createTempFile("route", ".csv");
+        routeFile.deleteOnExit();
+        antColony.saveTour(routeFile.getPath(), tour);
+
+        AntColony nextRun = new AntColony("src/edu/northeastern/psa/file.csv");
+        int[] loaded = nextRun.loadTour(routeFile.getPath());
+        assertArrayEquals(tour, loaded);
+
+        nextRun.setCandidateListSize(10);
+        nextRun.addWarmStartTour(loaded);
+        double minCost = nextRun.travellingSalesman(5, 2, new ArrayList<>());
+        assertTrue(minCost <= nextRun.getNearestNeighbourTourLength(0));
+    }
+
+    @Test
+    public void testAddAndRemoveLocationKeepTrails() {
+        AntColony antColony = new AntColony();
+        antColony.setGraph(new double[][]{
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        });
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.setCandidateListSize(2);
+        antColony.travellingSalesman(10, 10, new ArrayList<>());
+        double[][] trails = copyOf(antColony.getRewardMatrix());
+
+        // Location 4 sits right next to location 1.
+        assertEquals(4, antColony.addLocation(new double[]{3.5, 1, 6.5, 2.5}));
+        assertEquals(5, antColony.getGraph().length);
+        assertEquals(1, antColony.getGraph()[4][1], 0);
+        assertEquals(trails[1][2], antColony.getPheromone(4, 2), 0);
+        assertEquals(trails[1][2], antColony.getPheromone(2, 4), 0);
+        assertEquals(trails[0][3], antColony.getPheromone(0, 3), 0);
+        assertArrayEquals(AntColony.buildNearestNeighbourLists(antColony.getGraph(), 2), antColony.getCandidateLists());
+        assertEquals(5, antColony.getBestTour().length);
+        assertEquals(antColony.getTourLength(antColony.getBestTour()), antColony.getBestTourLength(), 1e-12);
+        assertEquals(18.5, antColony.getBestTourLength(), 1e-12);
+
+        // Removing location 0 moves location 4 into its slot.
+        antColony.removeLocation(0);
+        assertEquals(4, antColony.getGraph().length);
+        assertEquals(1, antColony.getGraph()[0][1], 0);
+        assertEquals(2.5, antColony.getGraph()[3][0], 0);
+        assertEquals(trails[1][2], antColony.getPheromone(0, 2), 0);
+        assertEquals(trails[2][3], antColony.getPheromone(2, 3), 0);
+        assertArrayEquals(AntColony.buildNearestNeighbourLists(antColony.getGraph(), 2), antColony.getCandidateLists());
+        assertEquals(antColony.getTourLength(antColony.getBestTour()), antColony.getBestTourLength(), 1e-12);
+
+        antColony.runGenerations(10, 5, new ArrayList<>());
+        assertEquals(antColony.getTourLength(antColony.getBestTour()), antColony.getBestTourLength(), 1e-12);
+    }
+
+    @Test
+    public void testLocationUpdatesLeaveCallerMatricesAlone() {
+        double[][] graph = {
+                {0, 3, 5, 4},
+                {3, 0, 7, 2},
+                {5, 7, 0, 9},
+                {4, 2, 9, 0},
+        };
+        double[][] original = copyOf(graph);
+        AntColony antColony = new AntColony();
+        antColony.setGraph(graph);
+        antColony.setRewardMatrix(onesMatrix(4));
+        antColony.removeLocation(0);
+        assertArrayEquals(original, graph);
+
+        antColony.addLocation(new double[]{3.5, 1, 6.5});
+        antColony.addLocation(new double[]{6, 4, 1, 8});
+        double[][] held = antColony.getGraph();
+        double[][] heldCopy = copyOf(held);
+        antColony.removeLocation(0);
+        assertArrayEquals(heldCopy, held);
+
+        // rows keep spare capacity inside the colony, but getGraph only shows the current locations
+        double[][] current = antColony.getGraph();
+        assertEquals(4, current.length);
+        for (double[] row : current) {
+            assertEquals(4, row.length);
+        }
+        assertArrayEquals(new double[]{0, 4, 1, 8}, current[0], 0);
+        assertEquals(6.5, current[2][3], 0);
+        assertArrayEquals(new int[]{2, 1}, AntColony.getNearestNeighbours(current[0], 4, 0, 2));
+    }
+
+    @Test
+    public void testMaxMinAddLocationClampsNewTrails() {
+        // ten points on the unit circle, and a new one just outside the first
+        int n = 10;
+        double[][] graph = new double[n][n];
+        double[] distances = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                graph[i][j] = 2 * Math.sin(Math.PI * Math.abs(i - j) / n);
+            }
+            double angle = 2 * Math.PI * i / n;
+            distances[i] = Math.hypot(Math.cos(angle) - 1.1, Math.sin(angle));
+        }
+        for (boolean sparse : new boolean[]{false, true}) {
+            AntColony antColony = new AntColony();
+            antColony.setGraph(graph);
+            antColony.setVariant(AntColony.Variant.MAX_MIN_ANT_SYSTEM);
+            antColony.setCandidateListSize(4);
+            antColony.setSparsePheromone(sparse);
+            antColony.travellingSalesman(5, 20, new ArrayList<>());
+
+            assertEquals(n, antColony.addLocation(distances));
+            double tolerance = antColony.getTauMax() * 1e-6;
+            for (int j = 0; j < n; j++) {
+                assertTrue(antColony.getPheromone(n, j) >= antColony.getTauMin() - tolerance);
+                assertTrue(antColony.getPheromone(n, j) <= antColony.getTauMax() + tolerance);
+                assertTrue(antColony.getPheromone(j, n) <= antColony.getTauMax() + tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testDynamicLocationsOnLiveColonies() {
+        for (AntColony.Variant variant : AntColony.Variant.values()) {
+            AntColony antColony = new AntColony("src/edu/northeastern/psa/file.csv");
+            antColony.setCandidateListSize(8);
+            antColony.setVariant(variant);
+            antColony.setSparsePheromone(variant == AntColony.Variant.MAX_MIN_ANT_SYSTEM);
+            antColony.travellingSalesman(5, 3, new ArrayList<>());
+            int n = antColony.getGraph().length;
+
+            Location moved = antColony.getCoords().get(n - 1);
+            antColony.removeLocation(7);
+            assertSame(moved, antColony.getCoords().get(7));
+            antColony.addLocation(new Location(51.5, -0.12, "new-incident"));
+
+            assertEquals(n, antColony.getGraph().length);
+            assertEquals(n, antColony.getCoords().size());
+            assertArrayEquals(AntColony.buildNearestNeighbourLists(antColony.getGraph(), 8), antColony.getCandidateLists());
+            assertEquals(antColony.getTourLength(antColony.getBestTour()), antColony.getBestTourLength(), 1e-9);
+
+            antColony.runGenerations(5, 2, new ArrayList<>());
+            assertEquals(antColony.getTourLength(antColony.getBestTour()), antColony.getBestTourLength(), 1e-9);
+            if (variant == AntColony.Variant.POPULATION_BASED) {
+                for (int[] tour : antColony.getPopulationTours()) {
+                    assertEquals(n, tour.length);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCrimeLocationReaderMatchesStringParsing() throws IOException {
+        java.io.File csv = java.io.File.createTempFile("crimes", ".csv");
+        csv.deleteOnExit();
+        StringBuilder content = new StringBuilder("crimeID,longitude,latitude\r\n");
+        content.append("a,-0.009691,51.483548\r\n");
+        content.append("b,-0.009691,51.483548\r\n");
+        content.append("c,0.076327,51.540042,extra\n");
+        content.append("\n");
+        content.append("d,-1.2e-3,5.1E1\n");
+        content.append("e,-0.1234567890123456789,51.00000000000000000001\n");
+        content.append("f,-0.0,0\n");
+        Random random = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            content.append("r").append(i).append(",")
+                    .append(-0.5 + random.nextInt(1000) / 1000.0).append(",")
+                    .append(51 + random.nextInt(1000) / 1000.0).append("\n");
+        }
+        content.append("last,0.5,51.5");
+        try (java.io.FileWriter writer = new java.io.FileWriter(csv)) {
+            writer.write(content.toString());
+        }
+
+        CrimeLocationReader reader = CrimeLocationReader.read(csv.getPath());
+
+        List<String> ids = new ArrayList<>();
+        List<Double> lats = new ArrayList<>();
+        List<Double> lons = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        String[] lines = content.toString().split("\r?\n");
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].isEmpty()) {
+                continue;
+            }
+            String[] columns = lines[i].split(",");
+            double lat = Double.parseDouble(columns[2]);
+            double lon = Double.parseDouble(columns[1]);
+            if (seen.add(lat + " " + lon)) {
+                ids.add(columns[0]);
+                lats.add(lat);
+                lons.add(lon);
+            }
+        }
+
+        assertEquals(5007, reader.getRowCount());
+        assertEquals(ids.size(), reader.size());
+        assertEquals(ids, Arrays.asList(reader.getCrimeIds()));
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(Double.doubleToLongBits(lats.get(i)), Double.doubleToLongBits(reader.getLatitude(i)));
+            assertEquals(Double.doubleToLongBits(lons.get(i)), Double.doubleToLongBits(reader.getLongitude(i)));
+        }
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testCrimeLocationReaderRejectsFieldWithoutDigits() throws IOException {
+        java.io.File csv = java.io.File.createTempFile("crimes", ".csv");
+        csv.deleteOnExit();
+        try (java.io.FileWriter writer = new java.io.FileWriter(csv)) {
+            writer.write("crimeID,longitude,latitude\na,.,51.5\n");
+        }
+        CrimeLocationReader.read(csv.getPath());
+    }
+
+    @Test
+    public void testCrimeLocationReaderOnBundledData() throws IOException {
+        CrimeLocationReader reader = CrimeLocationReader.read("src/edu/northeastern/psa/file.csv");
+        AntColony antColony = new AntColony("src/edu/northeastern/psa/file.csv");
+        assertEquals(antColony.getCoords().size(), reader.size());
+        assertEquals(585, reader.getRowCount());
+        assertEquals("447a81a19157c2f6ef97accacebaa66d8153e19ca43c16ca452e6d8d447823", reader.getCrimeId(0));
+        assertEquals(51.483548, reader.getLatitude(0), 0);
+        assertEquals(-0.009691, reader.getLongitude(0), 0);
+    }
+
+    private static void assertLocalSearchImprovesTour(LocalSearch localSearch) {
+        Random random = new Random(3);
+        int n = 200;
+        double[][] points = new double[n][2];
+        for (double[] point : points) {
+            point[0] = random.nextDouble();
+            point[1] = random.nextDouble();
+        }
+        double[][] graph = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                graph[i][j] = Math.hypot(points[i][0] - points[j][0], points[i][1] - points[j][1]);
+            }
+        }
+
+        int[] tour = new int[n];
+        for (int i = 0; i < n; i++) {
+            tour[i] = i;
+        }
+        double initialLength = tourLength(tour, graph);
+
+        double improvedLength = localSearch.improve(tour, initialLength, graph);
+
+        assertEquals(tourLength(tour, graph), improvedLength, 1e-6);
+        assertTrue(improvedLength < initialLength / 2);
+        boolean[] seen = new boolean[n];
+        for (int city : tour) {
+            assertFalse(seen[city]);
+            seen[city] = true;
+        }
+
+        // A second pass starting from a local optimum finds nothing more.
+        assertEquals(improvedLength, localSearch.improve(tour, improvedLength, graph), 1e-9);
+    }
+
+    private static double tourLength(int[] tour, double[][] graph) {
+        double length = 0;
+        for (int i = 0; i < tour.length; i++) {
+            length += graph[tour[i]][tour[(i + 1) % tour.length]];
+        }
+        return length;
+    }
+
+    private static double[][] onesMatrix(int n) {
+        double[][] matrix = new double[n][n];
+        for (double[] row : matrix) {
+            Arrays.fill(row, 1);
+        }
+        return matrix;
+    }
+
     @Test
     public void testTravellingSalesman() {
         AntColony antColony = new AntColony();
@@ -0,0 +1,633 @@
+package info6205.Graph;
+
+import info6205.Graph.Utils.ConcurrentUnionFind;
+import info6205.Graph.Utils.IndexMinPQ;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A frozen undirected graph in compressed sparse row form. Nodes are numbered 0 .. n - 1, and the edges
+ * leaving node i are the entries offsets[i] .. offsets[i + 1] - 1 of targets and weights. Every undirected
+ * edge is stored once in each direction, and twins links the two entries, so parallel edges and self
+ * loops of a multigraph are kept. Traversals are array scans, with no hashing of keys or boxing of weights.
+ * @param <NodeValue> Type of value the Node or vertices hold for this graph
+ * @param <NodeKeyValue> Type of unique ID for a node or vertices for this graph
+ */
+public class CsrGraph<NodeValue, NodeKeyValue> {
+
+    private static final int NODES_PER_TASK = 1024;
+
+    private final List<Node<NodeValue, NodeKeyValue>> nodes;
+
+    private final Map<Key<NodeKeyValue>, Integer> nodeIndices;
+
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private final double[] weights;
+
+    private final int[] twins;
+
+    private CsrGraph(List<Node<NodeValue, NodeKeyValue>> nodes, int[] offsets, int[] targets, double[] weights,
+                     int[] twins) {
+        this.nodes = nodes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.twins = twins;
+        this.nodeIndices = new HashMap<>(nodes.size() * 2);
+        for (int i = 0; i < nodes.size(); i++) {
+            nodeIndices.put(nodes.get(i).getKey(), i);
+        }
+    }
+
+    /**
+     * Builds a CSR graph from undirected edges given as parallel arrays
+     * @param nodes nodes of the graph, node i of the edges is nodes.get(i)
+     * @param edgeCount number of edges to read from the arrays
+     * @param from first node index of each edge
+     * @param to second node index of each edge
+     * @param weight weight of each edge
+     * @return the frozen graph
+     * @param <NodeValue> Type of value the Node or vertices hold
+     * @param <NodeKeyValue> Type of unique ID for a node
+     */
+    public static <NodeValue, NodeKeyValue> CsrGraph<NodeValue, NodeKeyValue> fromEdges(
+            List<Node<NodeValue, NodeKeyValue>> nodes, int edgeCount, int[] from, int[] to, double[] weight) {
+        int n = nodes.size();
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[from[e] + 1]++;
+            offsets[to[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] next = Arrays.copyOf(offsets, n);
+        int[] targets = new int[2 * edgeCount];
+        double[] weights = new double[2 * edgeCount];
+        int[] twins = new int[2 * edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int forward = next[from[e]]++;
+            int backward = next[to[e]]++;
+            targets[forward] = to[e];
+            weights[forward] = weight[e];
+            targets[backward] = from[e];
+            weights[backward] = weight[e];
+            twins[forward] = backward;
+            twins[backward] = forward;
+        }
+        return new CsrGraph<>(new ArrayList<>(nodes), offsets, targets, weights, twins);
+    }
+
+    /**
+     * Freezes an adjacency list graph. Nodes are numbered in getNodes() order and each node's edges keep
+     * the order of getNeighbours(), so traversals visit the graph the same way as on the list graph.
+     * @param graph graph to copy
+     * @param weightOf converts an edge weight to a double
+     * @return the frozen graph
+     * @param <NodeValue> Type of value the Node or vertices hold
+     * @param <NodeKeyValue> Type of unique ID for a node
+     * @param <EdgeWeight> Type of Edge Weight of the given graph
+     */
+    public static <NodeValue, NodeKeyValue, EdgeWeight extends Comparable<EdgeWeight>> CsrGraph<NodeValue, NodeKeyValue> from(
+            UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graph,
+            ToDoubleFunction<? super EdgeWeight> weightOf) {
+        List<Node<NodeValue, NodeKeyValue>> nodes = graph.getNodes();
+        Map<Key<NodeKeyValue>, Integer> indices = new HashMap<>(nodes.size() * 2);
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i).getKey(), i);
+        }
+
+        int n = nodes.size();
+        int[] offsets = new int[n + 1];
+        List<List<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>>> neighbours = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            List<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>> edges = graph.getNeighbours(nodes.get(i).getKey());
+            neighbours.add(edges);
+            offsets[i + 1] = offsets[i] + edges.size();
+        }
+
+        int[] targets = new int[offsets[n]];
+        double[] weights = new double[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            int e = offsets[i];
+            for (Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight> edge : neighbours.get(i)) {
+                targets[e] = indices.get(edge.getSecondNode().getKey());
+                weights[e] = weightOf.applyAsDouble(edge.getEdgeWeight());
+                e++;
+            }
+        }
+        return new CsrGraph<>(nodes, offsets, targets, weights, pairTwins(offsets, targets));
+    }
+
+    /**
+     * Pairs the k-th entry i -> j with the k-th entry j -> i, which is how addEdge stores a multigraph.
+     * A self loop is stored as two entries in the same row, and those are paired with each other.
+     */
+    private static int[] pairTwins(int[] offsets, int[] targets) {
+        int n = offsets.length - 1;
+        int[] twins = new int[targets.length];
+        Arrays.fill(twins, -1);
+
+        // Bucket the reverse entries by target, so each row only scans the entries that point back at it.
+        int[] reverseOffsets = new int[n + 1];
+        for (int target : targets) {
+            reverseOffsets[target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            reverseOffsets[i + 1] += reverseOffsets[i];
+        }
+        int[] reverseEntries = new int[targets.length];
+        int[] reverseSources = new int[targets.length];
+        int[] next = Arrays.copyOf(reverseOffsets, n);
+        for (int i = 0; i < n; i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                reverseSources[next[targets[e]]] = i;
+                reverseEntries[next[targets[e]]++] = e;
+            }
+        }
+
+        // Entries of row j are bucketed contiguously, so a cursor per source row walks them in order.
+        int[] cursor = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int r = reverseOffsets[i + 1] - 1; r >= reverseOffsets[i]; r--) {
+                cursor[reverseSources[r]] = r;
+            }
+
+            int pendingLoop = -1;
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                int j = targets[e];
+                if (j < i) {
+                    continue;
+                }
+                if (j == i) {
+                    if (pendingLoop == -1) {
+                        pendingLoop = e;
+                    } else {
+                        twins[pendingLoop] = e;
+                        twins[e] = pendingLoop;
+                        pendingLoop = -1;
+                    }
+                    continue;
+                }
+                int r = cursor[j]++;
+                if (r >= reverseOffsets[i + 1] || reverseSources[r] != j) {
+                    throw new IllegalArgumentException("Edge " + i + " -> " + j + " has no reverse entry");
+                }
+                twins[e] = reverseEntries[r];
+                twins[reverseEntries[r]] = e;
+            }
+            if (pendingLoop != -1) {
+                throw new IllegalArgumentException("Self loop on " + i + " has no second entry");
+            }
+        }
+        for (int e = 0; e < twins.length; e++) {
+            if (twins[e] == -1) {
+                throw new IllegalArgumentException("Edge " + e + " has no reverse entry");
+            }
+        }
+        return twins;
+    }
+
+    /**
+     * return size of the graph in terms of nodes
+     * @return number of nodes
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Number of undirected edges, counting parallel edges separately
+     * @return number of edges
+     */
+    public int getEdgeCount() {
+        return targets.length / 2;
+    }
+
+    /**
+     * Node with the given index
+     * @param i node index
+     * @return the node
+     */
+    public Node<NodeValue, NodeKeyValue> getNode(int i) {
+        return nodes.get(i);
+    }
+
+    /**
+     * Index of the node with the given key
+     * @param key Node's Unique Identifier
+     * @return the node index, or -1 if the node is not in the graph
+     */
+    public int indexOf(Key<NodeKeyValue> key) {
+        return nodeIndices.getOrDefault(key, -1);
+    }
+
+    /**
+     * First edge entry of a node, edges of node i are firstEdge(i) .. endEdge(i) - 1
+     * @param i node index
+     * @return index of the first edge entry
+     */
+    public int firstEdge(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * One past the last edge entry of a node
+     * @param i node index
+     * @return index after the last edge entry
+     */
+    public int endEdge(int i) {
+        return offsets[i + 1];
+    }
+
+    /**
+     * Number of edge entries of a node, a self loop counts twice
+     * @param i node index
+     * @return degree of the node
+     */
+    public int degree(int i) {
+        return offsets[i + 1] - offsets[i];
+    }
+
+    /**
+     * Node an edge entry leads to
+     * @param e edge entry
+     * @return index of the target node
+     */
+    public int getTarget(int e) {
+        return targets[e];
+    }
+
+    /**
+     * Weight of an edge entry
+     * @param e edge entry
+     * @return the weight
+     */
+    public double getWeight(int e) {
+        return weights[e];
+    }
+
+    /**
+     * The entry for the same undirected edge in the opposite direction
+     * @param e edge entry
+     * @return the twin entry
+     */
+    public int getTwin(int e) {
+        return twins[e];
+    }
+
+    /**
+     * Sum of the weights of all undirected edges
+     * @return total weight
+     */
+    public double getTotalWeight() {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        return total / 2;
+    }
+
+    /**
+     * Indices of the nodes with an odd degree
+     * @return node indices in increasing order
+     */
+    public int[] getOddDegreeNodes() {
+        int count = 0;
+        int[] odd = new int[size()];
+        for (int i = 0; i < size(); i++) {
+            if (degree(i) % 2 != 0) {
+                odd[count++] = i;
+            }
+        }
+        return Arrays.copyOf(odd, count);
+    }
+
+    /**
+     * This creates MST by Eager Prims algorithm, using IndexMinPQ keyed on node index. If the graph is not
+     * connected, the result is a minimum spanning forest.
+     * @return a new CSR graph with the same nodes and the tree edges
+     */
+    public CsrGraph<NodeValue, NodeKeyValue> getMSTByPrims() {
+        int n = size();
+        double[] distTo = new double[n];
+        int[] edgeTo = new int[n];
+        boolean[] inTree = new boolean[n];
+        Arrays.fill(distTo, Double.POSITIVE_INFINITY);
+        Arrays.fill(edgeTo, -1);
+
+        int[] from = new int[Math.max(n - 1, 0)];
+        int[] to = new int[from.length];
+        double[] weight = new double[from.length];
+        int edgeCount = 0;
+
+        IndexMinPQ<Double> pq = new IndexMinPQ<>(Math.max(n, 1));
+        for (int root = 0; root < n; root++) {
+            if (inTree[root]) {
+                continue;
+            }
+            distTo[root] = 0;
+            pq.insert(root, 0.0);
+            while (!pq.isEmpty()) {
+                int v = pq.delMin();
+                inTree[v] = true;
+                if (edgeTo[v] != -1) {
+                    from[edgeCount] = targets[twins[edgeTo[v]]];
+                    to[edgeCount] = v;
+                    weight[edgeCount] = weights[edgeTo[v]];
+                    edgeCount++;
+                }
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int w = targets[e];
+                    if (inTree[w] || weights[e] >= distTo[w]) {
+                        continue;
+                    }
+                    distTo[w] = weights[e];
+                    edgeTo[w] = e;
+                    if (pq.contains(w)) {
+                        pq.decreaseKey(w, weights[e]);
+                    } else {
+                        pq.insert(w, weights[e]);
+                    }
+                }
+            }
+        }
+        return fromEdges(nodes, edgeCount, from, to, weight);
+    }
+
+    /**
+     * Minimum spanning forest by the algorithm that suits the pool: Boruvka's rounds spread over the workers
+     * when there are several, Kruskal's sequential sweep when there is only one, as Boruvka does more total work
+     * @param pool pool to run on
+     * @return the forest as a CSR graph over the same nodes
+     */
+    public CsrGraph<NodeValue, NodeKeyValue> getMinimumSpanningForest(ForkJoinPool pool) {
+        return pool.getParallelism() > 1 ? getMSTByBoruvka(pool) : getMSTByKruskal();
+    }
+
+    /**
+     * Minimum spanning forest by Kruskal's algorithm. Edges are sorted as primitive longs holding the float
+     * rank of the weight and the edge index, runs that share a float rank are then ordered by the exact
+     * weight, and a union-find keeps every edge that joins two trees. O(m log m), suited to sparse graphs
+     * @return the forest as a CSR graph over the same nodes
+     */
+    public CsrGraph<NodeValue, NodeKeyValue> getMSTByKruskal() {
+        int n = size();
+        int candidates = 0;
+        for (int e = 0; e < targets.length; e++) {
+            if (e < twins[e]) {
+                candidates++;
+            }
+        }
+        long[] order = new long[candidates];
+        int next = 0;
+        for (int e = 0; e < targets.length; e++) {
+            if (e < twins[e]) {
+                order[next++] = ((long) sortableBits((float) weights[e]) << 32) | e;
+            }
+        }
+        Arrays.parallelSort(order);
+        for (int start = 0; start < order.length; ) {
+            int end = start + 1;
+            while (end < order.length && (order[end] >>> 32) == (order[start] >>> 32)) {
+                end++;
+            }
+            // insertion sort by the exact weight; these runs are nearly always one or two edges long
+            for (int i = start + 1; i < end; i++) {
+                long current = order[i];
+                int j = i;
+                while (j > start && weights[(int) order[j - 1]] > weights[(int) current]) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = current;
+            }
+            start = end;
+        }
+
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(n);
+        int[] from = new int[Math.max(n - 1, 0)];
+        int[] to = new int[from.length];
+        double[] weight = new double[from.length];
+        int edgeCount = 0;
+        for (int k = 0; k < order.length && edgeCount < from.length; k++) {
+            int e = (int) order[k];
+            int source = targets[twins[e]];
+            if (unionFind.union(source, targets[e])) {
+                from[edgeCount] = source;
+                to[edgeCount] = targets[e];
+                weight[edgeCount] = weights[e];
+                edgeCount++;
+            }
+        }
+        return fromEdges(nodes, edgeCount, from, to, weight);
+    }
+
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        // negative floats sort in reverse as raw bits, flipping their magnitude bits makes int order match
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * Minimum spanning forest by Boruvka's algorithm on the common pool
+     * @return the forest as a CSR graph over the same nodes
+     */
+    public CsrGraph<NodeValue, NodeKeyValue> getMSTByBoruvka() {
+        return getMSTByBoruvka(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Minimum spanning forest by Boruvka's algorithm. Every round labels each node with its component,
+     * finds the cheapest edge leaving every component in parallel, and then merges along those edges in
+     * parallel through a concurrent union-find. The number of components at least halves each round, so
+     * there are O(log n) rounds of O(m) work each. Ties are broken by edge index, which keeps the chosen
+     * edges acyclic, so the result weighs the same as Prim's
+     * @param pool pool running the rounds
+     * @return the forest as a CSR graph over the same nodes
+     */
+    public CsrGraph<NodeValue, NodeKeyValue> getMSTByBoruvka(ForkJoinPool pool) {
+        int n = size();
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(n);
+        int[] component = new int[n];
+        AtomicIntegerArray cheapest = new AtomicIntegerArray(n);
+        boolean[] inForest = new boolean[targets.length];
+
+        int components = n;
+        while (true) {
+            pool.invoke(new NodeRangeTask(i -> {
+                component[i] = unionFind.find(i);
+                cheapest.set(i, -1);
+            }, 0, n));
+            pool.invoke(new NodeRangeTask(i -> {
+                int own = component[i];
+                for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                    if (component[targets[e]] != own) {
+                        offerCheapest(cheapest, own, e);
+                    }
+                }
+            }, 0, n));
+            pool.invoke(new NodeRangeTask(i -> {
+                int e = cheapest.get(i);
+                // both ends may pick the same edge, only the union that merges records it
+                if (e != -1 && unionFind.union(i, targets[e])) {
+                    inForest[Math.min(e, twins[e])] = true;
+                }
+            }, 0, n));
+            if (unionFind.getCount() == components) {
+                break;
+            }
+            components = unionFind.getCount();
+        }
+
+        int edgeCount = n - components;
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        double[] weight = new double[edgeCount];
+        int next = 0;
+        for (int e = 0; e < inForest.length; e++) {
+            if (inForest[e]) {
+                from[next] = targets[twins[e]];
+                to[next] = targets[e];
+                weight[next] = weights[e];
+                next++;
+            }
+        }
+        return fromEdges(nodes, edgeCount, from, to, weight);
+    }
+
+    private void offerCheapest(AtomicIntegerArray cheapest, int component, int e) {
+        while (true) {
+            int current = cheapest.get(component);
+            if (current != -1 && !isLighter(e, current)) {
+                return;
+            }
+            if (cheapest.compareAndSet(component, current, e)) {
+                return;
+            }
+        }
+    }
+
+    private boolean isLighter(int e, int f) {
+        if (weights[e] != weights[f]) {
+            return weights[e] < weights[f];
+        }
+        return Math.min(e, twins[e]) < Math.min(f, twins[f]);
+    }
+
+    /**
+     * Depth first preorder from a node, visiting each node's edges in stored order. This matches the
+     * recursive DFS over the list graph but uses an explicit stack.
+     * @param start node index to start from
+     * @return node indices in the order they are first reached
+     */
+    public int[] getDepthFirstOrder(int start) {
+        int n = size();
+        boolean[] visited = new boolean[n];
+        int[] order = new int[n];
+        int count = 0;
+        int[] stack = new int[n];
+        int[] cursor = new int[n];
+        int depth = 0;
+
+        stack[0] = start;
+        cursor[0] = offsets[start];
+        visited[start] = true;
+        order[count++] = start;
+        while (depth >= 0) {
+            int v = stack[depth];
+            if (cursor[depth] == offsets[v + 1]) {
+                depth--;
+                continue;
+            }
+            int w = targets[cursor[depth]++];
+            if (!visited[w]) {
+                visited[w] = true;
+                order[count++] = w;
+                depth++;
+                stack[depth] = w;
+                cursor[depth] = offsets[w];
+            }
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    /**
+     * Eulerian circuit by Hierholzer's algorithm, using every edge entry pair exactly once. Every node
+     * must have an even degree and all edges must be reachable from the start for a full circuit.
+     * @param start node index to start and end at
+     * @return node indices of the circuit, with the start node first and last
+     */
+    public int[] getEulerianCircuit(int start) {
+        boolean[] used = new boolean[targets.length];
+        int[] next = Arrays.copyOf(offsets, size());
+        int[] stack = new int[getEdgeCount() + 1];
+        int[] circuit = new int[getEdgeCount() + 1];
+        int depth = 0;
+        int count = 0;
+
+        stack[0] = start;
+        while (depth >= 0) {
+            int v = stack[depth];
+            while (next[v] < offsets[v + 1] && used[next[v]]) {
+                next[v]++;
+            }
+            if (next[v] == offsets[v + 1]) {
+                circuit[count++] = v;
+                depth--;
+                continue;
+            }
+            int e = next[v]++;
+            used[e] = true;
+            used[twins[e]] = true;
+            stack[++depth] = targets[e];
+        }
+
+        int[] ordered = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordered[i] = circuit[count - 1 - i];
+        }
+        return ordered;
+    }
+
+    /**
+     * Runs an action for every node index in a range, splitting the range across the pool
+     */
+    private static class NodeRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer action;
+
+        private final int from;
+
+        private final int to;
+
+        NodeRangeTask(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= NODES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    action.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new NodeRangeTask(action, from, middle), new NodeRangeTask(action, middle, to));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package info6205.Graph;
+
+import info6205.Graph.Utils.ConcurrentUnionFind;
+import info6205.Graph.Utils.DensePrim;
+import info6205.Graph.Utils.GridIndex;
+import info6205.Graph.Utils.PlanarProjection;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Builds sparse candidate graphs over located nodes, for algorithms that would otherwise need all n^2 pairs.
+ * Each node is joined to its k nearest neighbours, found through a GridIndex on projected coordinates, so
+ * the graph has at most n * k edges. The minimum spanning tree of points in the plane is a subgraph of the
+ * Delaunay triangulation, and on real data nearly all of its edges are also among the 10 nearest neighbours,
+ * so the minimum spanning tree of the sparse graph matches or comes very close to the one of the complete
+ * graph. If the nearest neighbour graph falls apart into clusters, they are joined along their closest pairs.
+ */
+public class GeometricNeighbourGraph {
+
+    /**
+     * Number of nearest neighbours each node is joined to by default
+     */
+    public static final int DEFAULT_NEIGHBOURS = 10;
+
+    private GeometricNeighbourGraph() {
+    }
+
+    /**
+     * Builds the k nearest neighbour graph. Neighbours are chosen by distance on the projection, and each edge
+     * is weighed by the given weights, which only need to rank pairs roughly like the projection does
+     * @param nodes nodes of the graph, node i is located at point i of the projection
+     * @param projection planar coordinates of the nodes
+     * @param weights weight of the edge between two node indices
+     * @param k number of neighbours per node
+     * @return undirected graph with an edge wherever either end is among the other's k nearest
+     * @param <NodeValue> Type of value the Node or vertices hold
+     * @param <NodeKeyValue> Type of unique ID for a node
+     */
+    public static <NodeValue, NodeKeyValue> CsrGraph<NodeValue, NodeKeyValue> kNearest(
+            List<Node<NodeValue, NodeKeyValue>> nodes, PlanarProjection projection, DensePrim.Weights weights, int k) {
+        return kNearest(nodes, gridIndex(projection, nodes.size()), weights, k);
+    }
+
+    private static <NodeValue, NodeKeyValue> CsrGraph<NodeValue, NodeKeyValue> kNearest(
+            List<Node<NodeValue, NodeKeyValue>> nodes, GridIndex index, DensePrim.Weights weights, int k) {
+        int n = nodes.size();
+        int[][] neighbours = new int[n][];
+        IntStream.range(0, n).parallel().forEach(i -> neighbours[i] = index.nearest(i, k));
+
+        int edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            edgeCount += neighbours[i].length;
+        }
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        double[] weight = new double[edgeCount];
+        edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j : neighbours[i]) {
+                // a mutual pair is kept once, from its lower end
+                if (i < j || !contains(neighbours[j], i)) {
+                    from[edgeCount] = i;
+                    to[edgeCount] = j;
+                    weight[edgeCount] = weights.weight(i, j);
+                    edgeCount++;
+                }
+            }
+        }
+        return CsrGraph.fromEdges(nodes, edgeCount, from, to, weight);
+    }
+
+    /**
+     * Builds a spanning tree of the located nodes without looking at all pairs, over the DEFAULT_NEIGHBOURS
+     * nearest neighbour graph on the common pool
+     * @param nodes nodes of the graph, node i is located at point i of the projection
+     * @param projection planar coordinates of the nodes
+     * @param weights weight of the edge between two node indices
+     * @return spanning tree as a CSR graph
+     * @param <NodeValue> Type of value the Node or vertices hold
+     * @param <NodeKeyValue> Type of unique ID for a node
+     */
+    public static <NodeValue, NodeKeyValue> CsrGraph<NodeValue, NodeKeyValue> getMinimumSpanningTree(
+            List<Node<NodeValue, NodeKeyValue>> nodes, PlanarProjection projection, DensePrim.Weights weights) {
+        return getMinimumSpanningTree(nodes, projection, weights, DEFAULT_NEIGHBOURS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a spanning tree of the located nodes without looking at all pairs. A minimum spanning forest of
+     * the k nearest neighbour graph is found by parallel Boruvka, or by Kruskal if the pool has a single
+     * worker. If that leaves several trees, they are joined Boruvka style: in each round every tree but the
+     * largest finds its closest node pair with another tree through the grid index, and those edges are added. By
+     * the cut property each of them is a minimum spanning tree edge of the complete graph, measured on the
+     * projection.
+     * @param nodes nodes of the graph, node i is located at point i of the projection
+     * @param projection planar coordinates of the nodes
+     * @param weights weight of the edge between two node indices
+     * @param k number of neighbours per node
+     * @param pool pool the spanning forest is computed on
+     * @return spanning tree as a CSR graph
+     * @param <NodeValue> Type of value the Node or vertices hold
+     * @param <NodeKeyValue> Type of unique ID for a node
+     */
+    public static <NodeValue, NodeKeyValue> CsrGraph<NodeValue, NodeKeyValue> getMinimumSpanningTree(
+            List<Node<NodeValue, NodeKeyValue>> nodes, PlanarProjection projection, DensePrim.Weights weights, int k,
+            ForkJoinPool pool) {
+        GridIndex index = gridIndex(projection, nodes.size());
+        CsrGraph<NodeValue, NodeKeyValue> forest = kNearest(nodes, index, weights, k).getMinimumSpanningForest(pool);
+        int n = forest.size();
+        if (n == 0 || forest.getEdgeCount() == n - 1) {
+            return forest;
+        }
+
+        ConcurrentUnionFind unionFind = new ConcurrentUnionFind(n);
+        int[] from = new int[n - 1];
+        int[] to = new int[n - 1];
+        double[] weight = new double[n - 1];
+        int edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            for (int e = forest.firstEdge(i); e < forest.endEdge(i); e++) {
+                if (i < forest.getTarget(e)) {
+                    unionFind.union(i, forest.getTarget(e));
+                    from[edgeCount] = i;
+                    to[edgeCount] = forest.getTarget(e);
+                    weight[edgeCount] = forest.getWeight(e);
+                    edgeCount++;
+                }
+            }
+        }
+
+        int[] component = new int[n];
+        int[] size = new int[n];
+        int[] bestFrom = new int[n];
+        int[] bestTo = new int[n];
+        while (unionFind.getCount() > 1) {
+            Arrays.fill(size, 0);
+            int largest = 0;
+            for (int i = 0; i < n; i++) {
+                component[i] = unionFind.find(i);
+                size[component[i]]++;
+                if (size[component[i]] > size[largest]) {
+                    largest = component[i];
+                }
+            }
+            // The largest tree is skipped: every other tree merges, so the number of trees at least halves.
+            index.closestOutside(component, largest, bestFrom, bestTo);
+            for (int c = 0; c < n; c++) {
+                if (bestFrom[c] != -1 && unionFind.union(bestFrom[c], bestTo[c])) {
+                    from[edgeCount] = bestFrom[c];
+                    to[edgeCount] = bestTo[c];
+                    weight[edgeCount] = weights.weight(bestFrom[c], bestTo[c]);
+                    edgeCount++;
+                }
+            }
+        }
+        return CsrGraph.fromEdges(nodes, edgeCount, from, to, weight);
+    }
+
+    private static GridIndex gridIndex(PlanarProjection projection, int n) {
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = projection.getX(i);
+            y[i] = projection.getY(i);
+        }
+        return new GridIndex(x, y);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,238 @@
+package info6205.Graph;
+
+import info6205.Graph.Utils.DensePrim;
+
+import java.util.*;
+
+/**
+ * A complete undirected graph whose edges are never stored. Every pair of nodes is connected, and the
+ * weight of an edge is looked up by node index from a weight function (typically a distance table)
+ * whenever the edge is asked for. Only the nodes themselves are kept, so memory is O(n) instead of the
+ * O(n^2) edge objects of a materialised UndirectedEdgeWeighedListGraph.
+ * Algorithms written against the accessors (getNodes, hasNode, getNeighbours, getSize) work unchanged.
+ * getMSTByPrims always takes the dense path, reading weights straight from the weight function, or from
+ * the numeric weights when they are given, so no edge objects are created apart from the n - 1 tree edges.
+ * @param <NodeValue> Type of value the Node or vertices hold for this graph
+ * @param <NodeKeyValue> Type of unique ID for a node or vertices for this graph
+ * @param <EdgeWeight> Type of Edge Weight the edge will represent for this graph, this needs to implement Comparable
+ */
+public class ImplicitCompleteGraph<NodeValue, NodeKeyValue, EdgeWeight extends Comparable<EdgeWeight>>
+        extends UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> {
+
+    /**
+     * Supplies the weight of the edge between two nodes, given their indices in the node list
+     * @param <EdgeWeight> Type of Edge Weight
+     */
+    @FunctionalInterface
+    public interface EdgeWeightFunction<EdgeWeight> {
+
+        /**
+         * Weight of the edge between two distinct nodes
+         * @param i index of the first node
+         * @param j index of the second node
+         * @return the edge weight
+         */
+        EdgeWeight weight(int i, int j);
+    }
+
+    private final EdgeCreator<NodeValue, NodeKeyValue, EdgeWeight> edgeCreator;
+
+    private final List<Node<NodeValue, NodeKeyValue>> nodeList;
+
+    private final Map<Key<NodeKeyValue>, Integer> nodeIndices;
+
+    private final EdgeWeightFunction<EdgeWeight> edgeWeightFunction;
+
+    private final DensePrim.Weights numericWeights;
+
+    /**
+     *
+     * @param edgeCreator Edge creator used when edges are generated
+     * @param nodeList all nodes of the graph, in the order the weight function indexes them
+     * @param edgeWeightFunction weight of the edge between the nodes at two indices
+     */
+    public ImplicitCompleteGraph(EdgeCreator<NodeValue, NodeKeyValue, EdgeWeight> edgeCreator,
+                                 List<Node<NodeValue, NodeKeyValue>> nodeList,
+                                 EdgeWeightFunction<EdgeWeight> edgeWeightFunction) {
+        this(edgeCreator, nodeList, edgeWeightFunction, null);
+    }
+
+    /**
+     *
+     * @param edgeCreator Edge creator used when edges are generated
+     * @param nodeList all nodes of the graph, in the order the weight function indexes them
+     * @param edgeWeightFunction weight of the edge between the nodes at two indices
+     * @param numericWeights the same weights as primitive doubles, ordering pairs exactly like edgeWeightFunction,
+     *                       used by the MST to avoid boxing; may be null
+     */
+    public ImplicitCompleteGraph(EdgeCreator<NodeValue, NodeKeyValue, EdgeWeight> edgeCreator,
+                                 List<Node<NodeValue, NodeKeyValue>> nodeList,
+                                 EdgeWeightFunction<EdgeWeight> edgeWeightFunction,
+                                 DensePrim.Weights numericWeights) {
+        super(edgeCreator);
+        this.edgeCreator = edgeCreator;
+        this.nodeList = new ArrayList<>(nodeList);
+        this.nodeIndices = new HashMap<>(nodeList.size() * 2);
+        this.edgeWeightFunction = edgeWeightFunction;
+        this.numericWeights = numericWeights;
+        for (int i = 0; i < nodeList.size(); i++) {
+            Node<NodeValue, NodeKeyValue> node = nodeList.get(i);
+            nodes.put(node.getKey(), node);
+            nodeIndices.put(node.getKey(), i);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return nodeList.size();
+    }
+
+    /**
+     * Fetches all nodes, in the order the weight function indexes them
+     * @return copy of the node list
+     */
+    @Override
+    public List<Node<NodeValue, NodeKeyValue>> getNodes() {
+        return new ArrayList<>(nodeList);
+    }
+
+    /**
+     * Every pair of nodes is connected once
+     * @return n(n - 1) / 2
+     */
+    @Override
+    public long getEdgeCount() {
+        long size = nodeList.size();
+        return size * (size - 1) / 2;
+    }
+
+    /**
+     * Dense Prims over the weight function, nodeList is the list given at construction so indices match
+     * @param nodeList nodes of the graph, their positions are the indices used in the result
+     * @param parentWeights one null per node, each set to the weight of the edge from that node to its parent
+     * @return parent index of every node in the tree, or -1 for the root
+     */
+    @Override
+    protected int[] getDensePrimParents(List<Node<NodeValue, NodeKeyValue>> nodeList, List<EdgeWeight> parentWeights) {
+        int size = nodeList.size();
+        int[] parent;
+        if (numericWeights != null) {
+            parent = DensePrim.minimumSpanningTree(size, numericWeights);
+            for (int i = 0; i < size; i++) {
+                parentWeights.set(i, parent[i] == -1 ? null : edgeWeightFunction.weight(parent[i], i));
+            }
+        } else {
+            parent = new int[size];
+            boolean[] inTree = new boolean[size];
+            Arrays.fill(parent, -1);
+            for (int added = 0; added < size; added++) {
+                int current = -1;
+                for (int i = 0; i < size; i++) {
+                    EdgeWeight weight = parentWeights.get(i);
+                    if (!inTree[i] && (current == -1 || (weight != null && (parentWeights.get(current) == null
+                            || weight.compareTo(parentWeights.get(current)) < 0)))) {
+                        current = i;
+                    }
+                }
+                inTree[current] = true;
+                for (int i = 0; i < size; i++) {
+                    if (!inTree[i]) {
+                        EdgeWeight edgeWeight = edgeWeightFunction.weight(current, i);
+                        if (parentWeights.get(i) == null || parentWeights.get(i).compareTo(edgeWeight) > 0) {
+                            parentWeights.set(i, edgeWeight);
+                            parent[i] = current;
+                        }
+                    }
+                }
+            }
+        }
+        return parent;
+    }
+
+    /**
+     * Nodes are fixed when the graph is created, as the weight function is indexed by them
+     * @param node node to be added
+     * @return never returns
+     */
+    @Override
+    public boolean addNode(Node<NodeValue, NodeKeyValue> node) {
+        throw new UnsupportedOperationException("Nodes of an implicit complete graph are fixed at construction");
+    }
+
+    /**
+     * Every edge already exists implicitly, so edges cannot be added
+     * @param node1 first node of the edge
+     * @param node2 second node of the edge
+     * @param edgeWeight weight between these nodes
+     * @return never returns
+     */
+    @Override
+    public boolean addEdge(Node<NodeValue, NodeKeyValue> node1, Node<NodeValue, NodeKeyValue> node2, EdgeWeight edgeWeight) {
+        throw new UnsupportedOperationException("Edges of an implicit complete graph come from its weight function");
+    }
+
+    /**
+     * Generates the edges from the given node to every other node. The list is created on each call
+     * and is not backed by the graph.
+     * @param key Node's Unique Identifier
+     * @return list of n - 1 edges, or null if the node is not in the graph
+     */
+    @Override
+    public List<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>> getNeighbours(Key<NodeKeyValue> key) {
+        Integer index = nodeIndices.get(key);
+        if (index == null) {
+            return null;
+        }
+        Node<NodeValue, NodeKeyValue> node = nodeList.get(index);
+        List<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>> neighbours = new ArrayList<>(nodeList.size() - 1);
+        for (int j = 0; j < nodeList.size(); j++) {
+            if (j != index) {
+                neighbours.add(edgeCreator.createEdge(node, nodeList.get(j), edgeWeightFunction.weight(index, j)));
+            }
+        }
+        return neighbours;
+    }
+
+    /**
+     * Weight of the edge between two nodes of the graph
+     * @param node1 first node
+     * @param node2 second node
+     * @return the edge weight
+     */
+    public EdgeWeight getEdgeWeight(Node<NodeValue, NodeKeyValue> node1, Node<NodeValue, NodeKeyValue> node2) {
+        return edgeWeightFunction.weight(nodeIndices.get(node1.getKey()), nodeIndices.get(node2.getKey()));
+    }
+
+    /**
+     * Materialises every edge once, in one direction. This is O(n^2) and is only here to honour the
+     * EdgeWeightedListGraph contract; the Christofides stages do not need it.
+     * @return map of every edge to a count of one
+     */
+    @Override
+    public Map<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>, Integer> getEdges() {
+        Map<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>, Integer> allEdges = new HashMap<>();
+        for (int i = 0; i < nodeList.size() - 1; i++) {
+            for (int j = i + 1; j < nodeList.size(); j++) {
+                allEdges.put(edgeCreator.createEdge(nodeList.get(i), nodeList.get(j), edgeWeightFunction.weight(i, j)), 1);
+            }
+        }
+        return allEdges;
+    }
+
+    @Override
+    public void test() {
+        System.out.println("Implicit complete graph with " + getSize() + " nodes");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ImplicitCompleteGraph<?, ?, ?> that)) return false;
+        return nodeList.equals(that.nodeList) && edgeWeightFunction.equals(that.edgeWeightFunction);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodeList, edgeWeightFunction);
+    }
+}
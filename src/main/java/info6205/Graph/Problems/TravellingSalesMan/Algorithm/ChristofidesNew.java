@@ -4,7 +4,12 @@ import info6205.Graph.*;
 import info6205.Graph.Problems.TravellingSalesMan.Algorithm.ThreeOpt.ThreeOpt;
 import info6205.Graph.Problems.TravellingSalesMan.Algorithm.TwoOpt.TwoOpt;
 import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.LatLongId;
+import info6205.Graph.Utils.DensePrim;
+import info6205.Graph.Utils.DistanceMatrix;
+import info6205.Graph.Utils.MatrixEdgeWeightMap;
+import info6205.Graph.Utils.PackedDistanceMatrix;
 import info6205.Graph.Utils.Pair;
+import info6205.Graph.Utils.PlanarProjection;
 import info6205.Graph.Utils.PointPlotter;
 
 import java.awt.*;
@@ -21,7 +26,20 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
 
     private final EdgeCreator<NodeValue, NodeKeyValue, EdgeWeight> edgeCreator;
 
-    private static final double EARTH_RADIUS = 6371.0;
+    /**
+     * From this many nodes on, no distance table is built and the MST comes from a nearest neighbour graph
+     */
+    public static final int NEIGHBOUR_GRAPH_THRESHOLD = 10000;
+
+    private DistanceMatrix.Metric distanceMetric = DistanceMatrix.Metric.HAVERSINE;
+
+    private int neighbourGraphThreshold = NEIGHBOUR_GRAPH_THRESHOLD;
+
+    private boolean packedDistances = false;
+
+    private DistanceMatrix distanceMatrix;
+
+    private PlanarProjection nodeProjection;
 
 
     //private final SimulatedAnnealing<NodeValue, NodeKeyValue, EdgeWeight> simulatedAnnealing;
@@ -29,7 +47,7 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
     public ChristofidesNew(UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graph,
                         EdgeCreator<NodeValue, NodeKeyValue, EdgeWeight> edgeCreator) {
         this.graph = graph;
-        this.edgeWeights = new HashMap<>(graph.getSize() * graph.getSize() * 2);
+        this.edgeWeights = new HashMap<>();
         this.edgeCreator = edgeCreator;
     }
 
@@ -41,28 +59,29 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
             //System.out.println("hello hello");
             final long startTime = System.currentTimeMillis();
 
-            UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> mst = graph.getMSTByPrims();
+            CsrGraph<NodeValue, NodeKeyValue> mstCsr =
+                    isLargeInput() ? getMSTFromNeighbourGraph() : CsrGraph.from(graph.getMSTByPrims(), this::weightOf);
+            double mstWeight = calculateGraphWeight(mstCsr);
 
-            double mstWeight = calculateGraphWeight(mst);
 
-
-            List<Node<NodeValue, NodeKeyValue>> oddEdgedNodes = getOddEdgesNodes(mst);
+            List<Node<NodeValue, NodeKeyValue>> oddEdgedNodes = getOddEdgesNodes(mstCsr);
             //for multimatch check
 
             List<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>> edges = createMinimumWeightPerfectMatchingBruteForce(oddEdgedNodes);
             optimizeMinimumWeightPerfectMatching(edges);
 
-            createMultiGraphFromMstAndEdges(mst, edges);
-            UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> multiGraphEulerian = mst;
+            // The multigraph is only traversed, so it is built straight into int arrays from the tree and the matching.
+            CsrGraph<NodeValue, NodeKeyValue> multiGraphEulerian = createMultiGraphFromMstAndEdges(mstCsr, edges);
             //here in createEulerianTourFromMinWeightMultiMatchGraphStarter using external removal for edges and not using graphs method
             List<Node<NodeValue, NodeKeyValue>> eulerianTour = createEulerianTourFromMinWeightMultiMatchGraphStarterTwo(multiGraphEulerian);
 
             //without traversing multimatch
             //List<Node<NodeValue, NodeKeyValue>> eulerianTour = createOrderFromDFSStarter(mst);
 
+            List<Node<NodeValue, NodeKeyValue>> order = createOrderFromEulerianTour(eulerianTour, graph.getSize());
             UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> christoTsp = createGraphWithSameNodes(this.graph);
 
-            generateTspTourFromEulerianTourStarter(eulerianTour, christoTsp);
+            generateTspTourFromOrderStarter(order, christoTsp);
             //PointPlotter pointPlotter = new PointPlotter();
 
             double tspWeight = calculateGraphWeight(christoTsp);
@@ -70,8 +89,6 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
             System.out.println("Christofidies Time : " + (christoTime - startTime)/1000);
             System.out.println("TSP After Christofidies : " + tspWeight);
 
-            List<Node<NodeValue, NodeKeyValue>> order = createOrderFromDFSStarter(christoTsp);
-
             //end of christofidies--------------------------------------------------------------------------
 
             int processOfOptimization = 2;
@@ -242,19 +259,56 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
         }
     }
 
+    @SuppressWarnings("unchecked")
     private void addEdgesBetweenNodes() {
         List<Node<NodeValue, NodeKeyValue>> nodeList = graph.getNodes();
-        for (int i = 0; i < nodeList.size() - 1; i++) {
-            for (int j = i + 1; j < nodeList.size(); j++) {
-                EdgeWeight edgeWeight =  (EdgeWeight) getDistanceBetweenNodes((Node<String, LatLongId>) nodeList.get(i),
-                        (Node<String, LatLongId>) nodeList.get(j));
-                System.out.println();
-                graph.addEdge(nodeList.get(i), nodeList.get(j), edgeWeight);
-                edgeWeights.put(new Pair<>(nodeList.get(i), nodeList.get(j)), edgeWeight);
-                edgeWeights.put(new Pair<>(nodeList.get(j), nodeList.get(i)), edgeWeight);
-            }
+        double[] latitudes = new double[nodeList.size()];
+        double[] longitudes = new double[nodeList.size()];
+        for (int i = 0; i < nodeList.size(); i++) {
+            LatLongId latLongId = ((Node<String, LatLongId>) nodeList.get(i)).getKey().getValue();
+            latitudes[i] = latLongId.getLatitude();
+            longitudes[i] = latLongId.getLongitude();
         }
 
+        distanceMatrix = new DistanceMatrix(latitudes, longitudes, DistanceMatrix.EARTH_RADIUS_KM, distanceMetric);
+        if (distanceMatrix.getProjection() != null) {
+            System.out.println("Planar projection error bound vs haversine: "
+                    + distanceMatrix.getProjection().getAbsoluteErrorBound() + " km ("
+                    + distanceMatrix.getProjection().getRelativeErrorBound() * 100 + "%)");
+        }
+        if (isLargeInput()) {
+            // Too many nodes for a table: distances are computed on every lookup, the MST uses a sparse graph.
+            DistanceMatrix distances = distanceMatrix;
+            nodeProjection = distances.getProjection() != null ? distances.getProjection()
+                    : new PlanarProjection(latitudes, longitudes, DistanceMatrix.EARTH_RADIUS_KM);
+            graph = new ImplicitCompleteGraph<>(edgeCreator, nodeList,
+                    (i, j) -> (EdgeWeight) Double.valueOf(distances.distance(i, j)), distances::distance);
+            edgeWeights = (Map<Pair<Node<NodeValue, NodeKeyValue>, Node<NodeValue, NodeKeyValue>>, EdgeWeight>) (Map<?, ?>)
+                    new MatrixEdgeWeightMap<>(nodeList, distances::distance);
+            return;
+        }
+        DensePrim.Weights distances;
+        if (packedDistances) {
+            PackedDistanceMatrix packed = distanceMatrix.buildPacked();
+            distances = packed::get;
+        } else {
+            double[][] table = distanceMatrix.build();
+            distances = (i, j) -> table[i][j];
+        }
+
+        // Edges of the complete graph are generated from the table when asked for, never stored.
+        graph = new ImplicitCompleteGraph<>(edgeCreator, nodeList,
+                (i, j) -> (EdgeWeight) Double.valueOf(distances.weight(i, j)), distances);
+        edgeWeights = (Map<Pair<Node<NodeValue, NodeKeyValue>, Node<NodeValue, NodeKeyValue>>, EdgeWeight>) (Map<?, ?>)
+                new MatrixEdgeWeightMap<>(nodeList, distances);
+    }
+
+    private boolean isLargeInput() {
+        return graph.getSize() >= neighbourGraphThreshold;
+    }
+
+    private CsrGraph<NodeValue, NodeKeyValue> getMSTFromNeighbourGraph() {
+        return GeometricNeighbourGraph.getMinimumSpanningTree(graph.getNodes(), nodeProjection, distanceMatrix::distance);
     }
 
     private UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> createGraphWithSameNodes(
@@ -267,34 +321,6 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
         return graphCopy;
     }
 
-    private Double getDistanceBetweenNodes(Node<String, LatLongId> node1, Node<String, LatLongId> node2) {
-
-/*
-        System.out.print("Lat 1 = " + node1.getKey().getValue().getLatitude() + "Long 1: " +
-                node1.getKey().getValue().getLongitude());
-        System.out.print("--> Lat 2 = " + node2.getKey().getValue().getLatitude() + "Long 2: " +
-                node2.getKey().getValue().getLongitude());
-        System.out.println();
-
- */
-        double lat1Rad = Math.toRadians(node1.getKey().getValue().getLatitude());
-        double lon1Rad = Math.toRadians(node1.getKey().getValue().getLongitude());
-        double lat2Rad = Math.toRadians(node2.getKey().getValue().getLatitude());
-        double lon2Rad = Math.toRadians(node2.getKey().getValue().getLongitude());
-
-        double dlon = lon2Rad - lon1Rad;
-        double dlat = lat2Rad - lat1Rad;
-
-        double a = Math.sin(dlat/2) * Math.sin(dlat/2) +
-                Math.cos(lat1Rad) * Math.cos(lat2Rad) *
-                        Math.sin(dlon/2) * Math.sin(dlon/2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1-a));
-
-        double distance = EARTH_RADIUS * c;
-        //System.out.println("distance : " + distance);
-        return distance;//roundToDecimalPlaces(distance, 6);
-    }
-
     /*
     // Round a double value to a specified number of decimal places
     private static double roundToDecimalPlaces(double value, int decimalPlaces) {
@@ -304,6 +330,10 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
     }
      */
 
+    private List<Node<NodeValue, NodeKeyValue>> getOddEdgesNodes(CsrGraph<NodeValue, NodeKeyValue> graph) {
+        return toNodes(graph, graph.getOddDegreeNodes());
+    }
+
     private List<Node<NodeValue, NodeKeyValue>> getOddEdgesNodes(UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graph) {
         List<Node<NodeValue, NodeKeyValue>> oddNodes = new ArrayList<>();
         for (Node<NodeValue, NodeKeyValue> node : graph.getNodes()) {
@@ -427,6 +457,44 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
         }
     }
 
+    /**
+     * Builds the multigraph of the tree and the matching edges directly as a CSR graph, without adding the
+     * matching to a list graph and freezing it again. A matching edge that duplicates a tree edge is kept as
+     * a parallel edge
+     * @param mst frozen minimum spanning tree
+     * @param edges matching edges between odd degree nodes of the tree
+     * @return frozen multigraph over the nodes of the tree
+     */
+    public CsrGraph<NodeValue, NodeKeyValue> createMultiGraphFromMstAndEdges(CsrGraph<NodeValue, NodeKeyValue> mst,
+                                                                            List<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>> edges) {
+        int edgeCount = mst.getEdgeCount() + edges.size();
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        double[] weight = new double[edgeCount];
+        int count = 0;
+        for (int i = 0; i < mst.size(); i++) {
+            for (int e = mst.firstEdge(i); e < mst.endEdge(i); e++) {
+                if (e < mst.getTwin(e)) {
+                    from[count] = i;
+                    to[count] = mst.getTarget(e);
+                    weight[count] = mst.getWeight(e);
+                    count++;
+                }
+            }
+        }
+        for (Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight> edge : edges) {
+            from[count] = mst.indexOf(edge.getFirstNode().getKey());
+            to[count] = mst.indexOf(edge.getSecondNode().getKey());
+            weight[count] = weightOf(edge.getEdgeWeight());
+            count++;
+        }
+        List<Node<NodeValue, NodeKeyValue>> nodes = new ArrayList<>(mst.size());
+        for (int i = 0; i < mst.size(); i++) {
+            nodes.add(mst.getNode(i));
+        }
+        return CsrGraph.fromEdges(nodes, count, from, to, weight);
+    }
+
 
 
     public List<Node<NodeValue, NodeKeyValue>> createOrderFromDFSStarter(
@@ -457,6 +525,43 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
     }
 
 
+    /**
+     * Same preorder as createOrderFromDFSStarter on the list graph, computed with an int stack on the CSR graph
+     * @param graph frozen graph
+     * @return nodes in the order they are first reached from node 0
+     */
+    public List<Node<NodeValue, NodeKeyValue>> createOrderFromDFSStarter(CsrGraph<NodeValue, NodeKeyValue> graph) {
+        return toNodes(graph, graph.getDepthFirstOrder(0));
+    }
+
+    /**
+     * Same preorder as createEulerianTourFromMinWeightMultiMatchGraphStarterTwo on the list graph
+     * @param graph frozen multigraph
+     * @return nodes in the order they are first reached from node 0
+     */
+    public List<Node<NodeValue, NodeKeyValue>> createEulerianTourFromMinWeightMultiMatchGraphStarterTwo(
+            CsrGraph<NodeValue, NodeKeyValue> graph) {
+        return toNodes(graph, graph.getDepthFirstOrder(0));
+    }
+
+    /**
+     * Full Eulerian circuit of the multigraph from node 0, by Hierholzer's algorithm on the CSR arrays
+     * @param graph frozen multigraph with only even degrees
+     * @return nodes of the circuit, node 0 first and last
+     */
+    public List<Node<NodeValue, NodeKeyValue>> createEulerianTourFromMinWeightMultiMatchGraphStarter(
+            CsrGraph<NodeValue, NodeKeyValue> graph) {
+        return toNodes(graph, graph.getEulerianCircuit(0));
+    }
+
+    private List<Node<NodeValue, NodeKeyValue>> toNodes(CsrGraph<NodeValue, NodeKeyValue> graph, int[] indices) {
+        List<Node<NodeValue, NodeKeyValue>> nodes = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            nodes.add(graph.getNode(index));
+        }
+        return nodes;
+    }
+
     public List<Node<NodeValue, NodeKeyValue>> createEulerianTourFromMinWeightMultiMatchGraphStarterTwo(
             UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graph) {
 
@@ -555,33 +660,30 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
     //left
     public void generateTspTourFromEulerianTourStarter(List<Node<NodeValue, NodeKeyValue>> eulerianTour,
                                                        UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graph) {
-        Set<Node<NodeValue, NodeKeyValue>> visitedNodes = new HashSet<>();
-        int startIndex = new Random().nextInt(graph.getSize() - 1);
-        Node<NodeValue, NodeKeyValue> previousNode = eulerianTour.get(startIndex);
-        int currentNodeIndex = startIndex + 1;
-        int lastNodeUsed = -1;
-        visitedNodes.add(previousNode);
-
-
-        while (visitedNodes.size() != graph.getSize()) {
-            //System.out.println("max value = " + (graph.getSize() - 1) +  "currentIndex = " + currentNodeIndex);
+        generateTspTourFromOrderStarter(createOrderFromEulerianTour(eulerianTour, graph.getSize()), graph);
+    }
 
-            if (visitedNodes.contains(eulerianTour.get(currentNodeIndex))) {
-                currentNodeIndex = (currentNodeIndex + 1) % graph.getSize();
-                continue;
+    /**
+     * Shortcuts the Eulerian tour into the order of the TSP tour: from a random start, the tour is walked
+     * cyclically and each node is kept the first time it is reached. This is the order the tour edges are
+     * laid in, so it needs no search over the finished tour
+     * @param eulerianTour nodes of the Eulerian tour
+     * @param size number of distinct nodes in the tour
+     * @return every node once, in tour order
+     */
+    public List<Node<NodeValue, NodeKeyValue>> createOrderFromEulerianTour(List<Node<NodeValue, NodeKeyValue>> eulerianTour,
+                                                                          int size) {
+        Set<Node<NodeValue, NodeKeyValue>> visitedNodes = new HashSet<>();
+        List<Node<NodeValue, NodeKeyValue>> order = new ArrayList<>(size);
+        int currentNodeIndex = new Random().nextInt(size - 1);
+        while (order.size() != size) {
+            Node<NodeValue, NodeKeyValue> node = eulerianTour.get(currentNodeIndex);
+            if (visitedNodes.add(node)) {
+                order.add(node);
             }
-
-            graph.addEdge(previousNode, eulerianTour.get(currentNodeIndex),
-                    edgeWeights.get(new Pair<>(previousNode, eulerianTour.get(currentNodeIndex))));
-            lastNodeUsed = currentNodeIndex;
-            previousNode = eulerianTour.get(currentNodeIndex);
-            visitedNodes.add(previousNode);
-            currentNodeIndex = (currentNodeIndex + 1) % graph.getSize();
+            currentNodeIndex = (currentNodeIndex + 1) % eulerianTour.size();
         }
-
-        graph.addEdge(eulerianTour.get(startIndex), eulerianTour.get(lastNodeUsed),
-                edgeWeights.get(new Pair<>(eulerianTour.get(startIndex), eulerianTour.get(lastNodeUsed))));
-
+        return order;
     }
 
 
@@ -615,6 +717,14 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
     }
 
 
+    public Double calculateGraphWeight(CsrGraph<NodeValue, NodeKeyValue> graph) {
+        return graph.getTotalWeight();
+    }
+
+    private double weightOf(EdgeWeight edgeWeight) {
+        return ((Number) edgeWeight).doubleValue();
+    }
+
     public Double calculateGraphWeight(UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graph) {
         Double ans = 0D;
         for (Node<NodeValue, NodeKeyValue> node : graph.getNodes()) {
@@ -626,6 +736,39 @@ public class ChristofidesNew<NodeValue, NodeKeyValue, EdgeWeight extends Compara
         return ans/2;
     }
 
+    public UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> getGraph() {
+        return graph;
+    }
+
+    public DistanceMatrix.Metric getDistanceMetric() {
+        return distanceMetric;
+    }
+
+    public void setDistanceMetric(DistanceMatrix.Metric distanceMetric) {
+        this.distanceMetric = distanceMetric;
+    }
+
+    public int getNeighbourGraphThreshold() {
+        return neighbourGraphThreshold;
+    }
+
+    public void setNeighbourGraphThreshold(int neighbourGraphThreshold) {
+        this.neighbourGraphThreshold = neighbourGraphThreshold;
+    }
+
+    public boolean isPackedDistances() {
+        return packedDistances;
+    }
+
+    /**
+     * Stores the distance table below the neighbour graph threshold as packed floats, a quarter of the memory
+     * of a double table, at the cost of about 7 significant digits per distance
+     * @param packedDistances true for the float table, false for exact doubles
+     */
+    public void setPackedDistances(boolean packedDistances) {
+        this.packedDistances = packedDistances;
+    }
+
     public Map<Pair<Node<NodeValue, NodeKeyValue>, Node<NodeValue, NodeKeyValue>>, EdgeWeight> getEdgeWeights() {
         return edgeWeights;
     }
@@ -18,6 +18,11 @@ public class UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight
      */
     private final EdgeCreator<NodeValue, NodeKeyValue, EdgeWeight> edgeCreator;
 
+    /**
+     * Fraction of the n(n - 1) / 2 possible edges above which getMSTByPrims switches to the dense version
+     */
+    public static final double DENSE_PRIM_MIN_DENSITY = 0.9;
+
     /**
      *
      * @param edgeCreator Edge creator used for Edge Creations
@@ -102,13 +107,106 @@ public class UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight
     }
 
 
+    /**
+     * Number of undirected edges, counting parallel edges separately
+     * @return number of edges
+     */
+    public long getEdgeCount() {
+        long halfEdges = 0;
+        for (List<Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight>> neighbours : neighbourMap.values()) {
+            halfEdges += neighbours.size();
+        }
+        return halfEdges / 2;
+    }
+
+    /**
+     * Checks if the graph has close to n(n - 1) / 2 edges, in which case the dense Prim's is cheaper
+     * @return true if the edge count is at least DENSE_PRIM_MIN_DENSITY of a complete graph
+     */
+    public boolean isNearlyComplete() {
+        long size = getSize();
+        return size > 1 && getEdgeCount() >= DENSE_PRIM_MIN_DENSITY * (size * (size - 1) / 2);
+    }
+
+    /**
+     * This creates MST by Prims algorithm. On nearly complete graphs the dense array based version is used,
+     * otherwise the eager version with an IndexMinPQ
+     * @return returns ans UndirectedEdgeWeighedListGraph object similar to this class
+     */
+    public UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> getMSTByPrims() {
+        if (isNearlyComplete()) {
+            return getMSTByDensePrims();
+        }
+        return getMSTByEagerPrims();
+    }
+
+    /**
+     * This creates MST by Prims algorithm without a priority queue, the cheapest edge into the tree is kept per
+     * node in an array and the next node is found by a linear scan. This is O(n^2 + m), which is better than the
+     * eager version when m is close to n^2
+     * @return returns ans UndirectedEdgeWeighedListGraph object similar to this class
+     */
+    public UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> getMSTByDensePrims() {
+        UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graphMst =
+                new UndirectedEdgeWeighedListGraph<>(edgeCreator);
+        List<Node<NodeValue, NodeKeyValue>> nodeList = new ArrayList<>(getNodes());
+        List<EdgeWeight> parentWeights = new ArrayList<>(Collections.nCopies(nodeList.size(), null));
+        int[] parent = getDensePrimParents(nodeList, parentWeights);
+        for (int i = 0; i < parent.length; i++) {
+            if (parent[i] != -1) {
+                graphMst.addEdge(nodeList.get(parent[i]), nodeList.get(i), parentWeights.get(i));
+            }
+        }
+        return graphMst;
+    }
+
+    /**
+     * Runs the dense Prims over the adjacency lists, growing the tree from the first node
+     * @param nodeList nodes of the graph, their positions are the indices used in the result
+     * @param parentWeights one null per node, each set to the weight of the edge from that node to its parent
+     * @return parent index of every node in the tree, or -1 for the root
+     */
+    protected int[] getDensePrimParents(List<Node<NodeValue, NodeKeyValue>> nodeList, List<EdgeWeight> parentWeights) {
+        int size = nodeList.size();
+        Map<Key<NodeKeyValue>, Integer> nodeIndexMap = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            nodeIndexMap.put(nodeList.get(i).getKey(), i);
+        }
+        int[] parent = new int[size];
+        boolean[] inTree = new boolean[size];
+        Arrays.fill(parent, -1);
+
+        for (int added = 0; added < size; added++) {
+            // a null weight means no edge into the tree yet, such a node only becomes a new root
+            int current = -1;
+            for (int i = 0; i < size; i++) {
+                EdgeWeight weight = parentWeights.get(i);
+                if (!inTree[i] && (current == -1 || (weight != null && (parentWeights.get(current) == null
+                        || weight.compareTo(parentWeights.get(current)) < 0)))) {
+                    current = i;
+                }
+            }
+            inTree[current] = true;
+            for (Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight> edge : getNeighbours(nodeList.get(current).getKey())) {
+                int neighbourIndex = nodeIndexMap.get(edge.getSecondNode().getKey());
+                EdgeWeight edgeWeight = edge.getEdgeWeight();
+                if (!inTree[neighbourIndex] && (parentWeights.get(neighbourIndex) == null
+                        || parentWeights.get(neighbourIndex).compareTo(edgeWeight) > 0)) {
+                    parentWeights.set(neighbourIndex, edgeWeight);
+                    parent[neighbourIndex] = current;
+                }
+            }
+        }
+        return parent;
+    }
+
     /**
      * This creates MST by Eager Prims algorithm, it also uses IndexMinPQ to store object of SingleNodeEdgeWeight
      * for an index.
      * <a href="https://algs4.cs.princeton.edu/24pq">Source of IndexMinPQ</a>
      * @return returns ans UndirectedEdgeWeighedListGraph object similar to this class
      */
-    public UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> getMSTByPrims() {
+    public UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> getMSTByEagerPrims() {
         try {
 
             UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight> graphMst =
@@ -123,22 +221,25 @@ public class UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight
             //Map<Integer, Integer> edgeNeighbourNode = new HashMap<>();
             int count = 0;
             Key<NodeKeyValue> startingKey = null;
+            // Only accessors are used below, so subclasses that generate edges on demand work too
+            List<Node<NodeValue, NodeKeyValue>> nodeList = getNodes();
             IndexMinPQ<SingleNodeEdgeWeight<EdgeWeight, NodeValue, NodeKeyValue>> indexedMinEdgePQ
-                    = new IndexMinPQ<>(this.nodes.size());
+                    = new IndexMinPQ<>(nodeList.size());
 
 
-            for (Key<NodeKeyValue> nodeKey : this.nodes.keySet()) {
+            for (Node<NodeValue, NodeKeyValue> node : nodeList) {
+                Key<NodeKeyValue> nodeKey = node.getKey();
                 if (startingKey == null) {
                     startingKey = nodeKey;
                 }
                 //edgeNeighbourNode.put(, null);
                 nodeIndexMap.put(nodeKey, count++);
-                indexNodeMap.put(count - 1, this.nodes.get(nodeKey));
+                indexNodeMap.put(count - 1, node);
             }
 
             //initializing with first node
             visited.add(nodeIndexMap.get(startingKey));
-            for (Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight> edge : this.neighbourMap.get(startingKey)) {
+            for (Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight> edge : getNeighbours(startingKey)) {
 
                 Node<NodeValue, NodeKeyValue> neighbour = edge.getSecondNode();
 
@@ -147,12 +248,12 @@ public class UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight
                 int neighbourIndex = nodeIndexMap.get(neighbour.getKey());
 
                 indexedMinEdgePQ.insert(neighbourIndex, new SingleNodeEdgeWeight<>(edgeWeight,
-                        this.nodes.get(startingKey)));
+                        hasNode(startingKey)));
             }
 
             //creating edges now
 
-            while (visited.size() != this.nodes.size()) {
+            while (visited.size() != nodeList.size()) {
 
                 int indexOfCurrentMinEdge = indexedMinEdgePQ.minIndex();
 
@@ -174,7 +275,7 @@ public class UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight
 
                 startingKey = indexNodeMap.get(indexOfCurrentMinEdge).getKey();
 
-                for (Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight> edge : this.neighbourMap.get(startingKey)) {
+                for (Edge<Node<NodeValue, NodeKeyValue>, EdgeWeight> edge : getNeighbours(startingKey)) {
 
                     Node<NodeValue, NodeKeyValue> neighbour = edge.getSecondNode();
 
@@ -190,11 +291,11 @@ public class UndirectedEdgeWeighedListGraph<NodeValue, NodeKeyValue, EdgeWeight
                         if (indexedMinEdgePQ.keyOf(neighbourIndex)
                                 .edgeWeight.compareTo(edgeWeight) > 0) {
                             indexedMinEdgePQ.changeKey(neighbourIndex, new SingleNodeEdgeWeight<>(edgeWeight,
-                                    this.nodes.get(startingKey)));
+                                    hasNode(startingKey)));
                         }
                     } else {
                         indexedMinEdgePQ.insert(neighbourIndex, new SingleNodeEdgeWeight<>(edgeWeight,
-                                this.nodes.get(startingKey)));
+                                hasNode(startingKey)));
                     }
                 }
             }
@@ -0,0 +1,123 @@
+package info6205.Graph.Utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+/**
+ * Lock-free disjoint sets over the elements 0 .. n - 1, safe to call from many threads at once.
+ * Parent links live in an AtomicIntegerArray: find compresses paths by halving with compareAndSet,
+ * and union links one root under the other with a single compareAndSet, retrying if another thread
+ * moved either root first. Roots are linked by a fixed pseudo-random priority of their index, which
+ * keeps the trees shallow without storing ranks.
+ */
+public class ConcurrentUnionFind {
+
+    private final AtomicIntegerArray parent;
+
+    private final AtomicInteger count;
+
+    /**
+     * Creates n singleton sets.
+     *
+     * @param n Number of elements.
+     */
+    public ConcurrentUnionFind(int n) {
+        this.parent = new AtomicIntegerArray(n);
+        this.count = new AtomicInteger(n);
+        for (int i = 0; i < n; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    /**
+     * Retrieves the number of elements.
+     *
+     * @return The number of elements.
+     */
+    public int size() {
+        return parent.length();
+    }
+
+    /**
+     * Retrieves the current number of disjoint sets.
+     *
+     * @return The number of sets.
+     */
+    public int getCount() {
+        return count.get();
+    }
+
+    /**
+     * Finds the root of the set containing an element. While other threads are merging, the root
+     * returned may stop being a root right after the call, but it was the root at some point during it.
+     *
+     * @param x The element.
+     * @return The root of its set.
+     */
+    public int find(int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) {
+                return x;
+            }
+            int grandParent = parent.get(p);
+            if (grandParent != p) {
+                parent.compareAndSet(x, p, grandParent);
+            }
+            x = grandParent;
+        }
+    }
+
+    /**
+     * Checks if two elements are in the same set.
+     *
+     * @param x The first element.
+     * @param y The second element.
+     * @return true if they share a root.
+     */
+    public boolean connected(int x, int y) {
+        while (true) {
+            int rootX = find(x);
+            int rootY = find(y);
+            if (rootX == rootY) {
+                return true;
+            }
+            // rootX may have been linked meanwhile; only trust the answer if it is still a root
+            if (parent.get(rootX) == rootX) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Merges the sets containing two elements.
+     *
+     * @param x The first element.
+     * @param y The second element.
+     * @return true if this call merged two different sets, false if they were already one.
+     */
+    public boolean union(int x, int y) {
+        while (true) {
+            int rootX = find(x);
+            int rootY = find(y);
+            if (rootX == rootY) {
+                return false;
+            }
+            if (priority(rootX) > priority(rootY) || (priority(rootX) == priority(rootY) && rootX > rootY)) {
+                int swap = rootX;
+                rootX = rootY;
+                rootY = swap;
+            }
+            if (parent.compareAndSet(rootX, rootX, rootY)) {
+                count.decrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private static int priority(int x) {
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
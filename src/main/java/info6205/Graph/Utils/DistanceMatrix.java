@@ -0,0 +1,216 @@
+package info6205.Graph.Utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+
+/**
+ * Builds the full table of great-circle (haversine) distances between a set of locations.
+ * Latitudes and longitudes are converted to radians, and the cosine of every latitude is
+ * computed once up front, so each pair costs two sines, a square root and an arctangent.
+ * The table is filled row by row on a ForkJoinPool; each row writes both symmetric halves.
+ * In PLANAR mode the locations are projected onto a local plane once and distances are Euclidean.
+ */
+public class DistanceMatrix {
+
+    /**
+     * How the distance between two locations is computed.
+     */
+    public enum Metric {
+        HAVERSINE,
+        PLANAR
+    }
+
+    /**
+     * Mean earth radius in kilometres used by the Christofides pipeline.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    private static final int ROWS_PER_TASK = 16;
+
+    private final double[] latitudes;
+
+    private final double[] longitudes;
+
+    private final double[] cosLatitudes;
+
+    private final double radius;
+
+    private final PlanarProjection projection;
+
+
+    /**
+     * Creates a distance matrix builder for the given coordinates.
+     *
+     * @param latitudes  Latitudes in degrees.
+     * @param longitudes Longitudes in degrees, in the same order as the latitudes.
+     * @param radius     Radius of the sphere; distances come out in the same unit.
+     */
+    public DistanceMatrix(double[] latitudes, double[] longitudes, double radius) {
+        this(latitudes, longitudes, radius, Metric.HAVERSINE);
+    }
+
+    /**
+     * Creates a distance matrix builder for the given coordinates and metric.
+     *
+     * @param latitudes  Latitudes in degrees.
+     * @param longitudes Longitudes in degrees, in the same order as the latitudes.
+     * @param radius     Radius of the sphere; distances come out in the same unit.
+     * @param metric     HAVERSINE for great-circle distances, PLANAR for the local projection.
+     */
+    public DistanceMatrix(double[] latitudes, double[] longitudes, double radius, Metric metric) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Got " + latitudes.length + " latitudes but "
+                    + longitudes.length + " longitudes");
+        }
+        this.radius = radius;
+        this.latitudes = new double[latitudes.length];
+        this.longitudes = new double[longitudes.length];
+        this.cosLatitudes = new double[latitudes.length];
+        for (int i = 0; i < latitudes.length; i++) {
+            this.latitudes[i] = Math.toRadians(latitudes[i]);
+            this.longitudes[i] = Math.toRadians(longitudes[i]);
+            this.cosLatitudes[i] = Math.cos(this.latitudes[i]);
+        }
+        this.projection = metric == Metric.PLANAR ? new PlanarProjection(latitudes, longitudes, radius) : null;
+    }
+
+    /**
+     * Retrieves the number of locations.
+     *
+     * @return The number of locations.
+     */
+    public int size() {
+        return latitudes.length;
+    }
+
+    /**
+     * Retrieves the metric the table is built with.
+     *
+     * @return PLANAR if the locations are projected, HAVERSINE otherwise.
+     */
+    public Metric getMetric() {
+        return projection != null ? Metric.PLANAR : Metric.HAVERSINE;
+    }
+
+    /**
+     * Retrieves the planar projection used in PLANAR mode, which also reports its error.
+     *
+     * @return The projection, or null for HAVERSINE.
+     */
+    public PlanarProjection getProjection() {
+        return projection;
+    }
+
+    /**
+     * Computes the distance between two locations with the chosen metric.
+     *
+     * @param i Index of the first location.
+     * @param j Index of the second location.
+     * @return The distance between the two locations.
+     */
+    public double distance(int i, int j) {
+        if (projection != null) {
+            return projection.distance(i, j);
+        }
+        double sinHalfDLat = Math.sin((latitudes[j] - latitudes[i]) / 2);
+        double sinHalfDLon = Math.sin((longitudes[j] - longitudes[i]) / 2);
+        double a = sinHalfDLat * sinHalfDLat + cosLatitudes[i] * cosLatitudes[j] * sinHalfDLon * sinHalfDLon;
+        return radius * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    /**
+     * Builds the full symmetric distance table on the common ForkJoinPool.
+     *
+     * @return An n x n table with zeros on the diagonal.
+     */
+    public double[][] build() {
+        return build(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds the full symmetric distance table on the given pool.
+     *
+     * @param pool The pool to run the row tasks on.
+     * @return An n x n table with zeros on the diagonal.
+     */
+    public double[][] build(ForkJoinPool pool) {
+        int n = size();
+        double[][] distances = new double[n][n];
+        pool.invoke(new RowTask(i -> fillRow(distances, i), 0, n));
+        return distances;
+    }
+
+    /**
+     * Builds the packed float table on the heap, using the common ForkJoinPool.
+     *
+     * @return The upper triangle of the distance table.
+     */
+    public PackedDistanceMatrix buildPacked() {
+        return buildPacked(new PackedDistanceMatrix(size()), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Fills a packed table, which may live off-heap, on the given pool.
+     *
+     * @param distances A table of size() locations to fill.
+     * @param pool      The pool to run the row tasks on.
+     * @return The filled table.
+     */
+    public PackedDistanceMatrix buildPacked(PackedDistanceMatrix distances, ForkJoinPool pool) {
+        if (distances.size() != size()) {
+            throw new IllegalArgumentException("Table holds " + distances.size() + " locations, expected " + size());
+        }
+        pool.invoke(new RowTask(i -> fillRow(distances, i), 0, size()));
+        return distances;
+    }
+
+    private void fillRow(double[][] distances, int i) {
+        double[] row = distances[i];
+        for (int j = i + 1; j < row.length; j++) {
+            double distance = distance(i, j);
+            row[j] = distance;
+            distances[j][i] = distance;
+        }
+    }
+
+    private void fillRow(PackedDistanceMatrix distances, int i) {
+        for (int j = i + 1; j < distances.size(); j++) {
+            distances.set(i, j, (float) distance(i, j));
+        }
+    }
+
+    /**
+     * Fills a range of rows, splitting it in half until it is small enough to run directly.
+     * Early rows carry more pairs than late ones; work stealing evens that out.
+     */
+    private static class RowTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer fillRow;
+
+        private final int from;
+
+        private final int to;
+
+        RowTask(IntConsumer fillRow, int from, int to) {
+            this.fillRow = fillRow;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    fillRow.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowTask(fillRow, from, middle), new RowTask(fillRow, middle, to));
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package info6205.Graph.Utils;
+
+import java.util.Arrays;
+
+
+/**
+ * A uniform grid over planar points for nearest-neighbour queries. The bounding box is cut into
+ * square cells holding about two points each, and the points are bucketed by cell with a counting
+ * sort, so building is O(n). A query scans rings of cells around the point's own cell and stops as
+ * soon as no unscanned cell can hold anything closer, which is O(k) cells on evenly spread data.
+ */
+public class GridIndex {
+
+    private static final double POINTS_PER_CELL = 2.0;
+
+    private final double[] x;
+
+    private final double[] y;
+
+    private final double minX;
+
+    private final double minY;
+
+    private final double cellSize;
+
+    private final int columns;
+
+    private final int rows;
+
+    private final int[] cellStart;
+
+    private final int[] cellPoints;
+
+
+    /**
+     * Indexes the given points.
+     *
+     * @param x East-west coordinates.
+     * @param y North-south coordinates, in the same order and unit as x.
+     */
+    public GridIndex(double[] x, double[] y) {
+        this.x = x;
+        this.y = y;
+        int n = x.length;
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        double width = n == 0 ? 0 : maxX - minX;
+        double height = n == 0 ? 0 : maxY - minY;
+        double cells = Math.max(1, n / POINTS_PER_CELL);
+        double cellSize = Math.sqrt(width * height / cells);
+        if (cellSize == 0) {
+            // all points on a line (or one spot): spread the cells along the longer side
+            cellSize = Math.max(width, height) / cells;
+        }
+        if (cellSize == 0) {
+            cellSize = 1;
+        }
+        this.minX = n == 0 ? 0 : minX;
+        this.minY = n == 0 ? 0 : minY;
+        this.cellSize = cellSize;
+        this.columns = (int) Math.min(Math.floor(width / cellSize) + 1, n + 1);
+        this.rows = (int) Math.min(Math.floor(height / cellSize) + 1, n + 1);
+
+        this.cellStart = new int[columns * rows + 1];
+        int[] cellOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cell(column(x[i]), row(y[i]));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = Arrays.copyOf(cellStart, columns * rows);
+        this.cellPoints = new int[n];
+        for (int i = 0; i < n; i++) {
+            cellPoints[next[cellOf[i]]++] = i;
+        }
+    }
+
+    /**
+     * Retrieves the number of indexed points.
+     *
+     * @return The number of points.
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Finds the k points closest to an indexed point, excluding the point itself.
+     *
+     * @param i Index of the point.
+     * @param k Number of neighbours wanted.
+     * @return Up to k indices, nearest first. Fewer are returned only if there are fewer other points.
+     */
+    public int[] nearest(int i, int k) {
+        k = Math.min(k, size() - 1);
+        if (k <= 0) {
+            return new int[0];
+        }
+        int[] best = new int[k];
+        double[] bestDistances = new double[k];
+        int found = 0;
+
+        int column = column(x[i]);
+        int row = row(y[i]);
+        int maxRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int c = column - ring; c <= column + ring; c++) {
+                if (c < 0 || c >= columns) {
+                    continue;
+                }
+                boolean edgeColumn = c == column - ring || c == column + ring;
+                int step = edgeColumn ? 1 : Math.max(2 * ring, 1);
+                for (int r = row - ring; r <= row + ring; r += step) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    int cell = cell(c, r);
+                    for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                        int j = cellPoints[p];
+                        if (j == i) {
+                            continue;
+                        }
+                        double distance = squaredDistance(i, j);
+                        if (found == k && distance >= bestDistances[k - 1]) {
+                            continue;
+                        }
+                        int slot = found == k ? k - 1 : found++;
+                        while (slot > 0 && bestDistances[slot - 1] > distance) {
+                            best[slot] = best[slot - 1];
+                            bestDistances[slot] = bestDistances[slot - 1];
+                            slot--;
+                        }
+                        best[slot] = j;
+                        bestDistances[slot] = distance;
+                    }
+                }
+            }
+            // every point beyond this ring is at least ring * cellSize away
+            double reach = ring * cellSize;
+            if (found == k && bestDistances[k - 1] <= reach * reach) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds, for every group but one, the closest pair of points with one end inside the group and the other
+     * outside it, such as the cheapest edge leaving each connected component. The rings are searched from
+     * whole cells rather than single points, so a dense cluster costs one search per cell it occupies, and
+     * each search stops as soon as no unscanned cell can hold a closer pair.
+     *
+     * @param group Group of every indexed point, from 0 to size() - 1.
+     * @param skippedGroup Group that is not searched from, or -1 to search from all.
+     * @param from Receives, per group, the end of its closest pair inside the group, or -1 if there is none.
+     * @param to Receives, per group, the end of its closest pair outside the group.
+     */
+    public void closestOutside(int[] group, int skippedGroup, int[] from, int[] to) {
+        Arrays.fill(from, -1);
+        double[] best = new double[from.length];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        int[] lastCell = new int[from.length];
+        Arrays.fill(lastCell, -1);
+
+        for (int cell = 0; cell < columns * rows; cell++) {
+            for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+                int g = group[cellPoints[p]];
+                if (g != skippedGroup && lastCell[g] != cell) {
+                    lastCell[g] = cell;
+                    closestOutside(cell, g, group, from, to, best);
+                }
+            }
+        }
+    }
+
+    private void closestOutside(int start, int g, int[] group, int[] from, int[] to, double[] best) {
+        int column = start % columns;
+        int row = start / columns;
+        // box around the group's points in the start cell, so far points of a crowded cell skip the pair loop
+        double boxMinX = Double.POSITIVE_INFINITY;
+        double boxMinY = Double.POSITIVE_INFINITY;
+        double boxMaxX = Double.NEGATIVE_INFINITY;
+        double boxMaxY = Double.NEGATIVE_INFINITY;
+        for (int p = cellStart[start]; p < cellStart[start + 1]; p++) {
+            int i = cellPoints[p];
+            if (group[i] == g) {
+                boxMinX = Math.min(boxMinX, x[i]);
+                boxMinY = Math.min(boxMinY, y[i]);
+                boxMaxX = Math.max(boxMaxX, x[i]);
+                boxMaxY = Math.max(boxMaxY, y[i]);
+            }
+        }
+        int maxRing = Math.max(columns, rows);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int c = column - ring; c <= column + ring; c++) {
+                if (c < 0 || c >= columns) {
+                    continue;
+                }
+                boolean edgeColumn = c == column - ring || c == column + ring;
+                int step = edgeColumn ? 1 : Math.max(2 * ring, 1);
+                for (int r = row - ring; r <= row + ring; r += step) {
+                    if (r < 0 || r >= rows) {
+                        continue;
+                    }
+                    int cell = cell(c, r);
+                    for (int q = cellStart[cell]; q < cellStart[cell + 1]; q++) {
+                        int j = cellPoints[q];
+                        if (group[j] == g) {
+                            continue;
+                        }
+                        double dx = Math.max(Math.max(boxMinX - x[j], x[j] - boxMaxX), 0);
+                        double dy = Math.max(Math.max(boxMinY - y[j], y[j] - boxMaxY), 0);
+                        if (dx * dx + dy * dy >= best[g]) {
+                            continue;
+                        }
+                        for (int p = cellStart[start]; p < cellStart[start + 1]; p++) {
+                            int i = cellPoints[p];
+                            if (group[i] != g) {
+                                continue;
+                            }
+                            double distance = squaredDistance(i, j);
+                            if (distance < best[g]) {
+                                best[g] = distance;
+                                from[g] = i;
+                                to[g] = j;
+                            }
+                        }
+                    }
+                }
+            }
+            // every point beyond this ring is at least ring * cellSize away from the whole start cell
+            double reach = ring * cellSize;
+            if (best[g] <= reach * reach) {
+                break;
+            }
+        }
+    }
+
+    private double squaredDistance(int i, int j) {
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        return dx * dx + dy * dy;
+    }
+
+    private int column(double value) {
+        return Math.min((int) ((value - minX) / cellSize), columns - 1);
+    }
+
+    private int row(double value) {
+        return Math.min((int) ((value - minY) / cellSize), rows - 1);
+    }
+
+    private int cell(int column, int row) {
+        return row * columns + column;
+    }
+}
@@ -0,0 +1,144 @@
+package info6205.Graph.Utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * A read-only view of a packed distance table, or of a distance function, as a map from node
+ * pairs to edge weights. Lookups translate both nodes to their row index and read the table or
+ * call the function directly, so the n^2 Pair keys and boxed weights of an equivalent HashMap
+ * are never created.
+ *
+ * @param <N> The type of the nodes.
+ */
+public class MatrixEdgeWeightMap<N> extends AbstractMap<Pair<N, N>, Double> {
+
+    private final Map<N, Integer> indices;
+
+    private final DensePrim.Weights distances;
+
+
+    /**
+     * Creates a view over the given table.
+     *
+     * @param nodes     The nodes, in the same order as the rows of the table.
+     * @param distances The weights between the nodes.
+     */
+    public MatrixEdgeWeightMap(List<N> nodes, PackedDistanceMatrix distances) {
+        this(nodes, distances::get);
+    }
+
+    /**
+     * Creates a view over a distance function, which is called on every lookup.
+     *
+     * @param nodes     The nodes, in the order the function indexes them.
+     * @param distances The weight between the nodes at two indices.
+     */
+    public MatrixEdgeWeightMap(List<N> nodes, DensePrim.Weights distances) {
+        this.indices = new HashMap<>(nodes.size() * 2);
+        for (int i = 0; i < nodes.size(); i++) {
+            indices.put(nodes.get(i), i);
+        }
+        this.distances = distances;
+    }
+
+    /**
+     * Retrieves the weight between the two nodes of the pair.
+     *
+     * @param key The pair of nodes.
+     * @return The weight, or null if either node is unknown or both are the same node.
+     */
+    @Override
+    public Double get(Object key) {
+        if (!(key instanceof Pair<?, ?> pair)) {
+            return null;
+        }
+        Integer from = indices.get(pair.getFirst());
+        Integer to = indices.get(pair.getSecond());
+        if (from == null || to == null || from.equals(to)) {
+            return null;
+        }
+        return distances.weight(from, to);
+    }
+
+    /**
+     * Checks whether the pair is an edge of the table.
+     *
+     * @param key The pair of nodes.
+     * @return True if both nodes are known and distinct.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Retrieves the number of ordered pairs of distinct nodes.
+     *
+     * @return n * (n - 1), or Integer.MAX_VALUE if that does not fit in an int.
+     */
+    @Override
+    public int size() {
+        long n = indices.size();
+        return (int) Math.min(n * (n - 1), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Retrieves every ordered pair of distinct nodes with its weight, generated on demand.
+     *
+     * @return A read-only set of entries.
+     */
+    @Override
+    public Set<Entry<Pair<N, N>, Double>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Pair<N, N>, Double>> iterator() {
+                @SuppressWarnings("unchecked")
+                N[] nodes = (N[]) new Object[indices.size()];
+                for (Entry<N, Integer> entry : indices.entrySet()) {
+                    nodes[entry.getValue()] = entry.getKey();
+                }
+
+                return new Iterator<>() {
+                    private int from = 0;
+                    private int to = 1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return nodes.length > 1 && from < nodes.length;
+                    }
+
+                    @Override
+                    public Entry<Pair<N, N>, Double> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Entry<Pair<N, N>, Double> entry =
+                                new SimpleImmutableEntry<>(new Pair<>(nodes[from], nodes[to]), distances.weight(from, to));
+                        to++;
+                        if (to == from) {
+                            to++;
+                        }
+                        if (to == nodes.length) {
+                            from++;
+                            to = from == 0 ? 1 : 0;
+                        }
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return MatrixEdgeWeightMap.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,217 @@
+package info6205.Graph.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * A symmetric distance table that keeps only the strict upper triangle, as n(n - 1) / 2 floats.
+ * Pair (i, j) with i < j lives at i(2n - i - 1) / 2 + (j - i - 1), so each row's entries are
+ * contiguous. Compared to a double[][] this is a quarter of the memory, which keeps tables of
+ * 30k locations (about 1.8 GB) within reach.
+ * The entries are stored in chunks, either on the heap, in direct buffers, or in a memory-mapped file.
+ */
+public class PackedDistanceMatrix {
+
+    /**
+     * Where the entries of the table are stored.
+     */
+    public enum Storage {
+        HEAP,
+        DIRECT,
+        MAPPED
+    }
+
+    private static final int CHUNK_SHIFT = 28;
+
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int size;
+
+    private final Storage storage;
+
+    private final float[][] heapChunks;
+
+    private final FloatBuffer[] bufferChunks;
+
+
+    /**
+     * Creates an on-heap table for the given number of locations, with every distance set to zero.
+     *
+     * @param size The number of locations.
+     */
+    public PackedDistanceMatrix(int size) {
+        this.size = size;
+        this.storage = Storage.HEAP;
+        this.bufferChunks = null;
+        this.heapChunks = new float[chunkCount(size)][];
+        for (int chunk = 0; chunk < heapChunks.length; chunk++) {
+            heapChunks[chunk] = new float[chunkLength(size, chunk)];
+        }
+    }
+
+    private PackedDistanceMatrix(int size, Storage storage, FloatBuffer[] bufferChunks) {
+        this.size = size;
+        this.storage = storage;
+        this.heapChunks = null;
+        this.bufferChunks = bufferChunks;
+    }
+
+    /**
+     * Creates a table backed by direct byte buffers, outside of the Java heap.
+     *
+     * @param size The number of locations.
+     * @return The table, with every distance set to zero.
+     */
+    public static PackedDistanceMatrix allocateDirect(int size) {
+        FloatBuffer[] chunks = new FloatBuffer[chunkCount(size)];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            chunks[chunk] = ByteBuffer.allocateDirect(chunkLength(size, chunk) * Float.BYTES)
+                    .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        return new PackedDistanceMatrix(size, Storage.DIRECT, chunks);
+    }
+
+    /**
+     * Creates a table backed by a memory-mapped file. The file is created or grown as needed,
+     * and whatever it already holds is kept, so a table written once can be mapped again later.
+     *
+     * @param size The number of locations.
+     * @param file The file to map.
+     * @return The table.
+     * @throws IOException If the file cannot be opened or mapped.
+     */
+    public static PackedDistanceMatrix map(int size, Path file) throws IOException {
+        FloatBuffer[] chunks = new FloatBuffer[chunkCount(size)];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int chunk = 0; chunk < chunks.length; chunk++) {
+                long position = chunk * CHUNK_SIZE * Float.BYTES;
+                long length = (long) chunkLength(size, chunk) * Float.BYTES;
+                chunks[chunk] = channel.map(FileChannel.MapMode.READ_WRITE, position, length)
+                        .order(ByteOrder.nativeOrder()).asFloatBuffer();
+            }
+        }
+        return new PackedDistanceMatrix(size, Storage.MAPPED, chunks);
+    }
+
+    /**
+     * Creates a table of the given storage kind. Use {@link #map(int, Path)} for mapped tables.
+     *
+     * @param size    The number of locations.
+     * @param storage HEAP or DIRECT.
+     * @return The table, with every distance set to zero.
+     */
+    public static PackedDistanceMatrix allocate(int size, Storage storage) {
+        switch (storage) {
+            case HEAP:
+                return new PackedDistanceMatrix(size);
+            case DIRECT:
+                return allocateDirect(size);
+            default:
+                throw new IllegalArgumentException("A mapped table needs a file, use map(size, file)");
+        }
+    }
+
+    /**
+     * Retrieves the number of locations.
+     *
+     * @return The number of locations.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves where the entries are stored.
+     *
+     * @return The storage kind.
+     */
+    public Storage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Retrieves the number of stored pairs, n(n - 1) / 2.
+     *
+     * @return The number of stored pairs.
+     */
+    public long getPairCount() {
+        return pairCount(size);
+    }
+
+    /**
+     * Retrieves the distance between two locations, in either order.
+     *
+     * @param i Index of the first location.
+     * @param j Index of the second location.
+     * @return The distance, or zero when i equals j.
+     */
+    public float get(int i, int j) {
+        if (i == j) {
+            return 0f;
+        }
+        long index = i < j ? indexOf(i, j) : indexOf(j, i);
+        int chunk = (int) (index >>> CHUNK_SHIFT);
+        int offset = (int) (index & CHUNK_MASK);
+        return heapChunks != null ? heapChunks[chunk][offset] : bufferChunks[chunk].get(offset);
+    }
+
+    /**
+     * Sets the distance between two distinct locations, in both directions at once.
+     *
+     * @param i        Index of the first location.
+     * @param j        Index of the second location.
+     * @param distance The distance.
+     */
+    public void set(int i, int j, float distance) {
+        if (i == j) {
+            throw new IllegalArgumentException("The distance from " + i + " to itself is always zero");
+        }
+        long index = i < j ? indexOf(i, j) : indexOf(j, i);
+        int chunk = (int) (index >>> CHUNK_SHIFT);
+        int offset = (int) (index & CHUNK_MASK);
+        if (heapChunks != null) {
+            heapChunks[chunk][offset] = distance;
+        } else {
+            bufferChunks[chunk].put(offset, distance);
+        }
+    }
+
+    /**
+     * Copies one full row of the table, including the zero on the diagonal.
+     *
+     * @param i   The row to copy.
+     * @param row Array of at least size() entries to copy into.
+     * @return The row array.
+     */
+    public double[] getRow(int i, double[] row) {
+        for (int j = 0; j < size; j++) {
+            row[j] = get(i, j);
+        }
+        return row;
+    }
+
+    private long indexOf(int i, int j) {
+        return (long) i * (2L * size - i - 1) / 2 + (j - i - 1);
+    }
+
+    private static long pairCount(int size) {
+        return (long) size * (size - 1) / 2;
+    }
+
+    private static int chunkCount(int size) {
+        return (int) ((pairCount(size) + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    private static int chunkLength(int size, int chunk) {
+        return (int) Math.min(CHUNK_SIZE, pairCount(size) - chunk * CHUNK_SIZE);
+    }
+}
@@ -0,0 +1,235 @@
+package info6205.Graph.Utils;
+
+import java.util.stream.IntStream;
+
+
+/**
+ * Projects latitude/longitude onto a local flat plane with the equirectangular projection,
+ * centred on the middle of the bounding box: x = R cos(lat0) (lon - lon0), y = R (lat - lat0).
+ * Over a city-sized area the result is within a fraction of a percent of the haversine distance,
+ * and a distance costs one square root, or none at all when only squared distances are compared.
+ * The error can be bounded from the bounding box alone, in O(1); the exact all-pairs check against
+ * haversine costs more than building a haversine table and is only run when asked for.
+ */
+public class PlanarProjection {
+
+    private final double[] x;
+
+    private final double[] y;
+
+    private final DistanceMatrix haversine;
+
+    private final double radius;
+
+    private final double xScale;
+
+    private final double centreLatitude;
+
+    private final double centreLongitude;
+
+    private final double relativeErrorBound;
+
+    private final double absoluteErrorBound;
+
+    private double maxRelativeError = -1;
+
+    private double maxAbsoluteError = -1;
+
+
+    /**
+     * Projects the given coordinates.
+     *
+     * @param latitudes  Latitudes in degrees.
+     * @param longitudes Longitudes in degrees, in the same order as the latitudes.
+     * @param radius     Radius of the sphere; coordinates and distances come out in the same unit.
+     */
+    public PlanarProjection(double[] latitudes, double[] longitudes, double radius) {
+        this.haversine = new DistanceMatrix(latitudes, longitudes, radius);
+        int n = latitudes.length;
+
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minLatitude = Math.min(minLatitude, latitudes[i]);
+            maxLatitude = Math.max(maxLatitude, latitudes[i]);
+            minLongitude = Math.min(minLongitude, longitudes[i]);
+            maxLongitude = Math.max(maxLongitude, longitudes[i]);
+        }
+        this.radius = radius;
+        this.centreLatitude = Math.toRadians((minLatitude + maxLatitude) / 2);
+        this.centreLongitude = Math.toRadians((minLongitude + maxLongitude) / 2);
+        this.xScale = radius * Math.cos(centreLatitude);
+
+        this.relativeErrorBound = n < 2 ? 0 : relativeErrorBound(Math.toRadians(minLatitude), Math.toRadians(maxLatitude),
+                Math.toRadians(maxLongitude - minLongitude), centreLatitude);
+        // no pair is further apart than the projected diagonal, give or take the relative error
+        double diagonal = Math.hypot(xScale * Math.toRadians(maxLongitude - minLongitude),
+                radius * Math.toRadians(maxLatitude - minLatitude));
+        this.absoluteErrorBound = n < 2 ? 0 : relativeErrorBound * diagonal * (1 + relativeErrorBound);
+
+        this.x = new double[n];
+        this.y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = xScale * (Math.toRadians(longitudes[i]) - centreLongitude);
+            y[i] = radius * (Math.toRadians(latitudes[i]) - centreLatitude);
+        }
+    }
+
+    /**
+     * Retrieves the number of locations.
+     *
+     * @return The number of locations.
+     */
+    public int size() {
+        return x.length;
+    }
+
+    /**
+     * Retrieves the projected east-west coordinate of a location.
+     *
+     * @param i Index of the location.
+     * @return Distance east of the centre.
+     */
+    public double getX(int i) {
+        return x[i];
+    }
+
+    /**
+     * Retrieves the projected north-south coordinate of a location.
+     *
+     * @param i Index of the location.
+     * @return Distance north of the centre.
+     */
+    public double getY(int i) {
+        return y[i];
+    }
+
+    /**
+     * Computes the planar distance between two locations.
+     *
+     * @param i Index of the first location.
+     * @param j Index of the second location.
+     * @return The Euclidean distance between the projected locations.
+     */
+    public double distance(int i, int j) {
+        return Math.sqrt(squaredDistance(i, j));
+    }
+
+    /**
+     * Computes the planar distance between two arbitrary coordinates, projected with the same
+     * centre as the locations. Useful for locations added after the projection was set up.
+     *
+     * @param latitude1  Latitude of the first point in degrees.
+     * @param longitude1 Longitude of the first point in degrees.
+     * @param latitude2  Latitude of the second point in degrees.
+     * @param longitude2 Longitude of the second point in degrees.
+     * @return The Euclidean distance between the projected points.
+     */
+    public double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dx = xScale * Math.toRadians(longitude2 - longitude1);
+        double dy = radius * Math.toRadians(latitude2 - latitude1);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Computes the squared planar distance between two locations. It orders pairs the same way
+     * as {@link #distance(int, int)}, so nearest-neighbour searches can skip the square root.
+     *
+     * @param i Index of the first location.
+     * @param j Index of the second location.
+     * @return The squared Euclidean distance between the projected locations.
+     */
+    public double squaredDistance(int i, int j) {
+        double dx = x[j] - x[i];
+        double dy = y[j] - y[i];
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Retrieves a bound on the relative difference between the planar and the haversine distance of
+     * any two locations, computed from the bounding box when the projection is set up. The first order
+     * term is the spread of cos(latitude) against the cos(lat0) used for x; the second order terms cover
+     * the curvature of parallels and of the sphere. Checked against the exact error for boxes of up to
+     * 16 by 8 degrees below 70 degrees of latitude, which is far beyond where the projection is useful.
+     *
+     * @return Estimated upper bound of |planar - haversine| / haversine.
+     */
+    public double getRelativeErrorBound() {
+        return relativeErrorBound;
+    }
+
+    /**
+     * Retrieves a bound on the absolute difference between the planar and the haversine distance,
+     * the relative bound applied to the longest possible distance, the diagonal of the bounding box.
+     *
+     * @return Estimated upper bound of |planar - haversine|, in the unit of the radius.
+     */
+    public double getAbsoluteErrorBound() {
+        return absoluteErrorBound;
+    }
+
+    /**
+     * Retrieves the largest relative difference between the planar and the haversine distance
+     * over every pair of locations. This is an O(n^2) haversine pass, more work than building the
+     * haversine table itself, so it is meant for checks and tests; it runs once, in parallel, and is
+     * then cached. Use getRelativeErrorBound for reporting.
+     *
+     * @return max |planar - haversine| / haversine.
+     */
+    public double getMaxRelativeError() {
+        measureError();
+        return maxRelativeError;
+    }
+
+    /**
+     * Retrieves the largest absolute difference between the planar and the haversine distance
+     * over every pair of locations.
+     *
+     * @return max |planar - haversine|, in the unit of the radius.
+     */
+    public double getMaxAbsoluteError() {
+        measureError();
+        return maxAbsoluteError;
+    }
+
+    private static double relativeErrorBound(double minLatitude, double maxLatitude, double longitudeSpan,
+                                             double centreLatitude) {
+        double centreCos = Math.cos(centreLatitude);
+        // cos is largest at the equator, so that is the extreme if the box straddles it
+        double largestCos = minLatitude <= 0 && maxLatitude >= 0 ? 1 : Math.max(Math.cos(minLatitude), Math.cos(maxLatitude));
+        double smallestCos = Math.min(Math.cos(minLatitude), Math.cos(maxLatitude));
+        double scaleError = Math.max(largestCos - centreCos, centreCos - smallestCos) / centreCos;
+        double largestSin = Math.max(Math.abs(Math.sin(minLatitude)), Math.abs(Math.sin(maxLatitude)));
+        double latitudeSpan = maxLatitude - minLatitude;
+        return scaleError * (1 + scaleError)
+                + (longitudeSpan * largestSin) * (longitudeSpan * largestSin) / 2
+                + (longitudeSpan * longitudeSpan + latitudeSpan * latitudeSpan) / 8;
+    }
+
+    private synchronized void measureError() {
+        if (maxRelativeError >= 0) {
+            return;
+        }
+        int n = size();
+        double[] rowAbsoluteErrors = new double[n];
+        double[] rowRelativeErrors = new double[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = i + 1; j < n; j++) {
+                double exact = haversine.distance(i, j);
+                double error = Math.abs(distance(i, j) - exact);
+                rowAbsoluteErrors[i] = Math.max(rowAbsoluteErrors[i], error);
+                if (exact > 0) {
+                    rowRelativeErrors[i] = Math.max(rowRelativeErrors[i], error / exact);
+                }
+            }
+        });
+        maxAbsoluteError = 0;
+        maxRelativeError = 0;
+        for (int i = 0; i < n; i++) {
+            maxAbsoluteError = Math.max(maxAbsoluteError, rowAbsoluteErrors[i]);
+            maxRelativeError = Math.max(maxRelativeError, rowRelativeErrors[i]);
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package info6205.Graph;
 
 import info6205.Graph.Problems.TravellingSalesMan.Algorithm.Christofides;
+import info6205.Graph.Problems.TravellingSalesMan.Algorithm.ChristofidesNew;
 import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.EdgeALG;
 import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.LatLongId;
+import info6205.Graph.Utils.DistanceMatrix;
 import info6205.Graph.Utils.Pair;
 import org.junit.Test;
 
@@ -38,6 +40,139 @@ public class ChristofidesTest {
         assertEquals(3, graph.getNeighbours(node4.getKey()).size());
     }
 
+    @Test
+    public void testAddEdgesBetweenNodesUsesDistanceMatrix() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> graph = new UndirectedEdgeWeighedListGraph<>(EdgeALG::new);
+        Node<String, LatLongId> node1 = createNode(42.35, -71.06, "1");
+        Node<String, LatLongId> node2 = createNode(42.36, -71.05, "2");
+        Node<String, LatLongId> node3 = createNode(42.33, -71.08, "3");
+        graph.addNode(node1);
+        graph.addNode(node2);
+        graph.addNode(node3);
+        Method addEdgesBetweenNodesMethod = ChristofidesNew.class.getDeclaredMethod("addEdgesBetweenNodes");
+        addEdgesBetweenNodesMethod.setAccessible(true);
+        ChristofidesNew<String, LatLongId, Double> christofides = new ChristofidesNew<>(graph, EdgeALG::new);
+        addEdgesBetweenNodesMethod.invoke(christofides);
+        assertEquals(0, graph.getEdges().size());
+        assertTrue(christofides.getGraph() instanceof ImplicitCompleteGraph);
+        assertEquals(3, christofides.getGraph().getEdges().size());
+        assertEquals(2, christofides.getGraph().getNeighbours(node1.getKey()).size());
+        assertEquals(2, christofides.getGraph().getNeighbours(node3.getKey()).size());
+
+        double[][] distances = new DistanceMatrix(new double[]{42.35, 42.36, 42.33},
+                new double[]{-71.06, -71.05, -71.08}, DistanceMatrix.EARTH_RADIUS_KM).build();
+        assertEquals(0.0, distances[1][1], 0.0);
+        assertEquals(distances[0][2], distances[2][0], 0.0);
+        assertEquals(haversine(42.35, -71.06, 42.33, -71.08), distances[0][2], 1e-9);
+
+        Map<Pair<Node<String, LatLongId>, Node<String, LatLongId>>, Double> edgeWeights = christofides.getEdgeWeights();
+        assertEquals(6, edgeWeights.size());
+        assertEquals(distances[0][1], edgeWeights.get(new Pair<>(node1, node2)), 0.0);
+        assertEquals(distances[1][0], edgeWeights.get(new Pair<>(node2, node1)), 0.0);
+        assertEquals(distances[1][2], edgeWeights.get(new Pair<>(node2, node3)), 0.0);
+        assertEquals(null, edgeWeights.get(new Pair<>(node1, node1)));
+
+        // the float table is only used when asked for
+        ChristofidesNew<String, LatLongId, Double> packed = new ChristofidesNew<>(graph, EdgeALG::new);
+        packed.setPackedDistances(true);
+        addEdgesBetweenNodesMethod.invoke(packed);
+        assertEquals((float) distances[0][1], packed.getEdgeWeights().get(new Pair<>(node1, node2)), 0.0);
+        assertEquals((float) distances[1][2], packed.getEdgeWeights().get(new Pair<>(node2, node3)), 0.0);
+    }
+
+    @Test
+    public void testLargeInputSkipsDistanceTable() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> graph = new UndirectedEdgeWeighedListGraph<>(EdgeALG::new);
+        Node<String, LatLongId> node1 = createNode(42.35, -71.06, "1");
+        Node<String, LatLongId> node2 = createNode(42.36, -71.05, "2");
+        Node<String, LatLongId> node3 = createNode(42.33, -71.08, "3");
+        graph.addNode(node1);
+        graph.addNode(node2);
+        graph.addNode(node3);
+        ChristofidesNew<String, LatLongId, Double> christofides = new ChristofidesNew<>(graph, EdgeALG::new);
+        christofides.setNeighbourGraphThreshold(2);
+        Method addEdgesBetweenNodesMethod = ChristofidesNew.class.getDeclaredMethod("addEdgesBetweenNodes");
+        addEdgesBetweenNodesMethod.setAccessible(true);
+        addEdgesBetweenNodesMethod.invoke(christofides);
+
+        // weights are computed exactly on lookup instead of being read from a table
+        assertEquals(haversine(42.35, -71.06, 42.33, -71.08), christofides.getEdgeWeights().get(new Pair<>(node1, node3)), 1e-9);
+
+        Method mstMethod = ChristofidesNew.class.getDeclaredMethod("getMSTFromNeighbourGraph");
+        mstMethod.setAccessible(true);
+        CsrGraph<String, LatLongId> mst = (CsrGraph<String, LatLongId>) mstMethod.invoke(christofides);
+        assertEquals(2, mst.getEdgeCount());
+        assertEquals(christofides.calculateGraphWeight(christofides.getGraph().getMSTByPrims()),
+                christofides.calculateGraphWeight(mst), 1e-9);
+    }
+
+    @Test
+    public void testMultiGraphIsBuiltFromFrozenTreeAndMatching() {
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(createNode((double) i, (double) i, "" + i));
+        }
+        // path 0 - 1 - 2 - 3, whose ends are the odd nodes
+        CsrGraph<String, LatLongId> mst = CsrGraph.fromEdges(nodes, 3, new int[]{0, 1, 2}, new int[]{1, 2, 3},
+                new double[]{1.0, 2.0, 3.0});
+        ChristofidesNew<String, LatLongId, Double> christofides =
+                new ChristofidesNew<>(new UndirectedEdgeWeighedListGraph<>(EdgeALG::new), EdgeALG::new);
+        CsrGraph<String, LatLongId> multiGraph = christofides.createMultiGraphFromMstAndEdges(mst,
+                List.of(new EdgeALG(nodes.get(3), nodes.get(0), 4.0)));
+        assertEquals(4, multiGraph.getEdgeCount());
+        assertEquals(10.0, multiGraph.getTotalWeight(), 0.0);
+        assertEquals(0, multiGraph.getOddDegreeNodes().length);
+        assertEquals(2, multiGraph.degree(multiGraph.indexOf(nodes.get(0).getKey())));
+
+        // a shortcut of the closed walk 0 1 2 1 3 keeps every node once, in walk order
+        List<Node<String, LatLongId>> walk = List.of(nodes.get(0), nodes.get(1), nodes.get(2), nodes.get(1), nodes.get(3));
+        List<Node<String, LatLongId>> order = christofides.createOrderFromEulerianTour(walk, 4);
+        int start = walk.indexOf(order.get(0));
+        Set<Node<String, LatLongId>> expected = new LinkedHashSet<>();
+        for (int i = 0; i < walk.size(); i++) {
+            expected.add(walk.get((start + i) % walk.size()));
+        }
+        assertEquals(new ArrayList<>(expected), order);
+    }
+
+    @Test
+    public void testMstOfImplicitCompleteGraphMatchesMaterialisedGraph() {
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> graph = new UndirectedEdgeWeighedListGraph<>(EdgeALG::new);
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 30; i++) {
+            Node<String, LatLongId> node = createNode(42.3 + random.nextDouble() / 10, -71.1 + random.nextDouble() / 10, "" + i);
+            nodes.add(node);
+            graph.addNode(node);
+        }
+        double[][] weights = new double[30][30];
+        for (int i = 0; i < 30; i++) {
+            for (int j = i + 1; j < 30; j++) {
+                weights[i][j] = random.nextDouble();
+                weights[j][i] = weights[i][j];
+                graph.addEdge(nodes.get(i), nodes.get(j), weights[i][j]);
+            }
+        }
+        ImplicitCompleteGraph<String, LatLongId, Double> implicitGraph =
+                new ImplicitCompleteGraph<>(EdgeALG::new, nodes, (i, j) -> weights[i][j]);
+        assertEquals(30, implicitGraph.getSize());
+        assertEquals(graph.getEdges().size(), implicitGraph.getEdges().size());
+
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> mst = graph.getMSTByPrims();
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> implicitMst = implicitGraph.getMSTByPrims();
+        assertEquals(29, implicitMst.getEdges().size());
+        assertEquals(mst.getEdges().keySet().stream().mapToDouble(Edge::getEdgeWeight).sum(),
+                implicitMst.getEdges().keySet().stream().mapToDouble(Edge::getEdgeWeight).sum(), 1e-12);
+    }
+
+    private double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return DistanceMatrix.EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
     @Test
     public void testCreateGraphWithSameNodes() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
         UndirectedEdgeWeighedListGraph<String, LatLongId, Double> graph = new UndirectedEdgeWeighedListGraph<>(EdgeALG::new);
@@ -0,0 +1,146 @@
+package info6205.Graph;
+
+import info6205.Graph.Problems.TravellingSalesMan.Algorithm.ChristofidesNew;
+import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.EdgeALG;
+import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.LatLongId;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static info6205.Graph.Utility.Utility.createNode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CsrGraphTest {
+
+    @Test
+    public void testFromListGraphKeepsParallelEdges() {
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> graph = new UndirectedEdgeWeighedListGraph<>(EdgeALG::new);
+        Node<String, LatLongId> node1 = createNode(1.0, 1.0, "1");
+        Node<String, LatLongId> node2 = createNode(2.0, 2.0, "2");
+        Node<String, LatLongId> node3 = createNode(3.0, 3.0, "3");
+        graph.addNode(node1);
+        graph.addNode(node2);
+        graph.addNode(node3);
+        graph.addEdge(node1, node2, 1D);
+        graph.addEdge(node2, node3, 2D);
+        graph.addEdge(node1, node2, 1D);
+
+        CsrGraph<String, LatLongId> csr = CsrGraph.from(graph, Double::doubleValue);
+        assertEquals(3, csr.size());
+        assertEquals(3, csr.getEdgeCount());
+        assertEquals(4.0, csr.getTotalWeight(), 0.0);
+        assertEquals(2, csr.degree(csr.indexOf(node1.getKey())));
+        assertEquals(3, csr.degree(csr.indexOf(node2.getKey())));
+        assertArrayEquals(new int[]{csr.indexOf(node2.getKey()), csr.indexOf(node3.getKey())},
+                Arrays.stream(csr.getOddDegreeNodes()).sorted().toArray());
+        for (int i = 0; i < csr.size(); i++) {
+            for (int e = csr.firstEdge(i); e < csr.endEdge(i); e++) {
+                int twin = csr.getTwin(e);
+                assertEquals(e, csr.getTwin(twin));
+                assertEquals(i, csr.getTarget(twin));
+                assertEquals(csr.getWeight(e), csr.getWeight(twin), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testTraversalsMatchListGraph() {
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> graph = new UndirectedEdgeWeighedListGraph<>(EdgeALG::new);
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 40; i++) {
+            Node<String, LatLongId> node = createNode(random.nextDouble(), random.nextDouble(), "" + i);
+            nodes.add(node);
+            graph.addNode(node);
+        }
+        for (int i = 0; i < 40; i++) {
+            for (int j = i + 1; j < 40; j++) {
+                if (random.nextInt(4) == 0) {
+                    graph.addEdge(nodes.get(i), nodes.get(j), random.nextDouble());
+                }
+            }
+        }
+
+        CsrGraph<String, LatLongId> csr = CsrGraph.from(graph, Double::doubleValue);
+        ChristofidesNew<String, LatLongId, Double> christofides = new ChristofidesNew<>(graph, EdgeALG::new);
+        assertEquals(christofides.createOrderFromDFSStarter(graph), christofides.createOrderFromDFSStarter(csr));
+        assertEquals(christofides.calculateGraphWeight(graph), christofides.calculateGraphWeight(csr), 1e-9);
+        assertEquals(christofides.calculateGraphWeight(graph.getMSTByPrims()), csr.getMSTByPrims().getTotalWeight(), 1e-9);
+        assertEquals(39, csr.getMSTByPrims().getEdgeCount());
+    }
+
+    @Test
+    public void testEulerianCircuitUsesEveryEdgeOnce() {
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            nodes.add(createNode((double) i, (double) i, "" + i));
+        }
+        // Two triangles sharing node 0, with edge 3 - 4 repeated twice more
+        int[] from = {0, 1, 2, 0, 3, 4, 3, 4};
+        int[] to = {1, 2, 0, 3, 4, 0, 4, 3};
+        double[] weight = {1, 1, 1, 1, 1, 1, 1, 1};
+        CsrGraph<String, LatLongId> csr = CsrGraph.fromEdges(nodes, 8, from, to, weight);
+
+        int[] circuit = csr.getEulerianCircuit(0);
+        assertEquals(9, circuit.length);
+        assertEquals(0, circuit[0]);
+        assertEquals(0, circuit[circuit.length - 1]);
+        Map<String, Integer> used = new HashMap<>();
+        for (int i = 0; i + 1 < circuit.length; i++) {
+            used.merge(Math.min(circuit[i], circuit[i + 1]) + "-" + Math.max(circuit[i], circuit[i + 1]), 1, Integer::sum);
+        }
+        assertEquals(Map.of("0-1", 1, "1-2", 1, "0-2", 1, "0-3", 1, "3-4", 3, "0-4", 1), used);
+    }
+
+    @Test
+    public void testBoruvkaMatchesPrims() {
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        int size = 5000;
+        for (int i = 0; i < size; i++) {
+            nodes.add(createNode((double) i, (double) i, "" + i));
+        }
+        // Random sparse graph over the first 4990 nodes with many equal weights, the last 10 are a separate path
+        Random random = new Random(11);
+        int edgeCount = 4 * size + 9;
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        double[] weight = new double[edgeCount];
+        for (int e = 0; e < 4 * size; e++) {
+            from[e] = e < size - 10 ? e : random.nextInt(size - 10);
+            to[e] = random.nextInt(size - 10);
+            weight[e] = random.nextInt(20);
+        }
+        for (int e = 0; e < 9; e++) {
+            from[4 * size + e] = size - 10 + e;
+            to[4 * size + e] = size - 9 + e;
+            weight[4 * size + e] = 1;
+        }
+        CsrGraph<String, LatLongId> csr = CsrGraph.fromEdges(nodes, edgeCount, from, to, weight);
+
+        CsrGraph<String, LatLongId> prims = csr.getMSTByPrims();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CsrGraph<String, LatLongId> boruvka = csr.getMSTByBoruvka(pool);
+            assertEquals(prims.getEdgeCount(), boruvka.getEdgeCount());
+            assertEquals(size - 2, boruvka.getEdgeCount());
+            assertEquals(prims.getTotalWeight(), boruvka.getTotalWeight(), 1e-9);
+            assertEquals(prims.getTotalWeight(), csr.getMinimumSpanningForest(pool).getTotalWeight(), 1e-9);
+        } finally {
+            pool.shutdown();
+            ForkJoinPool singleWorker = new ForkJoinPool(1);
+        try {
+            assertEquals(prims.getTotalWeight(), csr.getMinimumSpanningForest(singleWorker).getTotalWeight(), 1e-9);
+        } finally {
+            singleWorker.shutdown();
+        }
+    }
+        ForkJoinPool singleWorker = new ForkJoinPool(1);
+        try {
+            assertEquals(prims.getTotalWeight(), csr.getMinimumSpanningForest(singleWorker).getTotalWeight(), 1e-9);
+        } finally {
+            singleWorker.shutdown();
+        }
+    }
+}
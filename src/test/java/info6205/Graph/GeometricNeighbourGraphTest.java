@@ -0,0 +1,176 @@
+package info6205.Graph;
+
+import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.LatLongId;
+import info6205.Graph.Utils.DensePrim;
+import info6205.Graph.Utils.DistanceMatrix;
+import info6205.Graph.Utils.GridIndex;
+import info6205.Graph.Utils.PlanarProjection;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static info6205.Graph.Utility.Utility.createNode;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeometricNeighbourGraphTest {
+
+    @Test
+    public void testGridNearestMatchesBruteForce() {
+        Random random = new Random(5);
+        int size = 500;
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            // a few repeated points and a dense corner, so cells are uneven
+            x[i] = i % 50 == 0 ? 1.0 : random.nextDouble() * (i % 3 == 0 ? 0.05 : 1.0);
+            y[i] = i % 50 == 0 ? 1.0 : random.nextDouble() * (i % 3 == 0 ? 0.05 : 1.0);
+        }
+        GridIndex index = new GridIndex(x, y);
+        for (int i = 0; i < size; i++) {
+            int query = i;
+            double[] expected = IntStream.range(0, size).filter(j -> j != query)
+                    .mapToDouble(j -> squaredDistance(x, y, query, j)).sorted().limit(8).toArray();
+            double[] actual = Arrays.stream(index.nearest(i, 8)).mapToDouble(j -> squaredDistance(x, y, query, j)).toArray();
+            assertArrayEquals(expected, actual, 0.0);
+        }
+        assertEquals(0, new GridIndex(new double[]{3.0}, new double[]{4.0}).nearest(0, 5).length);
+
+        int[] group = IntStream.range(0, size).map(i -> i < 450 ? 0 : 1 + i % 2).toArray();
+        int[] from = new int[size];
+        int[] to = new int[size];
+        index.closestOutside(group, 2, from, to);
+        for (int g = 0; g < 2; g++) {
+            int inside = g;
+            double expected = IntStream.range(0, size).filter(i -> group[i] == inside)
+                    .mapToDouble(i -> IntStream.range(0, size).filter(j -> group[j] != inside)
+                            .mapToDouble(j -> squaredDistance(x, y, i, j)).min().getAsDouble())
+                    .min().getAsDouble();
+            assertEquals(g, group[from[g]]);
+            assertTrue(group[to[g]] != g);
+            assertEquals(expected, squaredDistance(x, y, from[g], to[g]), 0.0);
+        }
+        assertEquals(-1, from[2]);
+        assertEquals(-1, from[3]);
+    }
+
+    @Test
+    public void testNeighbourGraphMstMatchesDenseMst() {
+        Random random = new Random(9);
+        int size = 2000;
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = 42.2 + random.nextDouble() * 0.2;
+            longitudes[i] = -71.2 + random.nextDouble() * 0.2;
+            nodes.add(createNode(latitudes[i], longitudes[i], "" + i));
+        }
+        PlanarProjection projection = new PlanarProjection(latitudes, longitudes, DistanceMatrix.EARTH_RADIUS_KM);
+
+        CsrGraph<String, LatLongId> tree = GeometricNeighbourGraph.getMinimumSpanningTree(nodes, projection, projection::distance);
+        int[] parent = DensePrim.minimumSpanningTree(size, projection::distance);
+        assertEquals(size - 1, tree.getEdgeCount());
+        assertEquals(DensePrim.totalWeight(parent, projection::distance), tree.getTotalWeight(), 1e-9);
+
+        // Boruvka on several workers and Kruskal on one give the same tree weight
+        for (int parallelism : new int[]{1, 4}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                CsrGraph<String, LatLongId> pooled = GeometricNeighbourGraph.getMinimumSpanningTree(nodes, projection,
+                        projection::distance, GeometricNeighbourGraph.DEFAULT_NEIGHBOURS, pool);
+                assertEquals(tree.getTotalWeight(), pooled.getTotalWeight(), 1e-9);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testClustersAreJoinedByRepair() {
+        Random random = new Random(13);
+        int size = 300;
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            // three clusters far apart, so the 3 nearest neighbours never cross between them
+            latitudes[i] = 40.0 + (i % 3) + random.nextDouble() * 0.01;
+            longitudes[i] = -70.0 + (i % 3) * 2 + random.nextDouble() * 0.01;
+            nodes.add(createNode(latitudes[i], longitudes[i], "" + i));
+        }
+        PlanarProjection projection = new PlanarProjection(latitudes, longitudes, DistanceMatrix.EARTH_RADIUS_KM);
+
+        CsrGraph<String, LatLongId> neighbours = GeometricNeighbourGraph.kNearest(nodes, projection, projection::distance, 3);
+        // at least one tree per cluster before the repair
+        assertTrue(neighbours.getMSTByKruskal().getEdgeCount() <= size - 3);
+        CsrGraph<String, LatLongId> tree = GeometricNeighbourGraph.getMinimumSpanningTree(nodes, projection, projection::distance, 3,
+                ForkJoinPool.commonPool());
+        assertEquals(size - 1, tree.getEdgeCount());
+        assertEquals(size, tree.getDepthFirstOrder(0).length);
+    }
+
+    @Test
+    public void testClustersAreJoinedAlongClosestPairs() {
+        Random random = new Random(21);
+        int size = 600;
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            // six clusters of uneven spread, far enough apart that no node has a neighbour in another
+            int cluster = i % 6;
+            double spread = 0.01 * (1 + cluster);
+            latitudes[i] = 40.0 + cluster % 3 + random.nextDouble() * spread;
+            longitudes[i] = -70.0 + (cluster / 3) * 1.5 + random.nextDouble() * spread;
+            nodes.add(createNode(latitudes[i], longitudes[i], "" + i));
+        }
+        PlanarProjection projection = new PlanarProjection(latitudes, longitudes, DistanceMatrix.EARTH_RADIUS_KM);
+
+        CsrGraph<String, LatLongId> neighbours = GeometricNeighbourGraph.kNearest(nodes, projection, projection::distance,
+                GeometricNeighbourGraph.DEFAULT_NEIGHBOURS);
+        assertEquals(size - 6, neighbours.getMSTByKruskal().getEdgeCount());
+        CsrGraph<String, LatLongId> tree = GeometricNeighbourGraph.getMinimumSpanningTree(nodes, projection, projection::distance);
+        int[] parent = DensePrim.minimumSpanningTree(size, projection::distance);
+        assertEquals(size - 1, tree.getEdgeCount());
+        assertEquals(DensePrim.totalWeight(parent, projection::distance), tree.getTotalWeight(), 1e-9);
+    }
+
+    @Test
+    public void testKruskalMatchesPrims() {
+        Random random = new Random(17);
+        int size = 1000;
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            nodes.add(createNode((double) i, (double) i, "" + i));
+        }
+        int edgeCount = 6 * size;
+        int[] from = new int[edgeCount];
+        int[] to = new int[edgeCount];
+        double[] weight = new double[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            from[e] = e < size ? e : random.nextInt(size);
+            to[e] = random.nextInt(size);
+            // weights that collide once rounded to float, and some negative ones
+            weight[e] = random.nextInt(5) - 2 + random.nextInt(3) * 1e-12;
+        }
+        CsrGraph<String, LatLongId> csr = CsrGraph.fromEdges(nodes, edgeCount, from, to, weight);
+        CsrGraph<String, LatLongId> kruskal = csr.getMSTByKruskal();
+        CsrGraph<String, LatLongId> prims = csr.getMSTByPrims();
+        assertEquals(prims.getEdgeCount(), kruskal.getEdgeCount());
+        assertEquals(prims.getTotalWeight(), kruskal.getTotalWeight(), 1e-9);
+        double[] kruskalWeights = IntStream.range(0, 2 * kruskal.getEdgeCount()).mapToDouble(kruskal::getWeight).sorted().toArray();
+        double[] primsWeights = IntStream.range(0, 2 * prims.getEdgeCount()).mapToDouble(prims::getWeight).sorted().toArray();
+        assertArrayEquals(primsWeights, kruskalWeights, 0.0);
+    }
+
+    private static double squaredDistance(double[] x, double[] y, int i, int j) {
+        return (x[i] - x[j]) * (x[i] - x[j]) + (y[i] - y[j]) * (y[i] - y[j]);
+    }
+}
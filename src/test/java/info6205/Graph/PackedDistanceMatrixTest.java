@@ -0,0 +1,92 @@
+package info6205.Graph;
+
+import info6205.Graph.Utils.DistanceMatrix;
+import info6205.Graph.Utils.MatrixEdgeWeightMap;
+import info6205.Graph.Utils.PackedDistanceMatrix;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class PackedDistanceMatrixTest {
+
+    private static final double[] LATITUDES = {42.35, 42.36, 42.33, 42.31, 42.38};
+
+    private static final double[] LONGITUDES = {-71.06, -71.05, -71.08, -71.10, -71.02};
+
+
+    @Test
+    public void testEdgeWeightMapSizeSaturates() {
+        List<Integer> small = IntStream.range(0, 5).boxed().collect(Collectors.toList());
+        assertEquals(20, new MatrixEdgeWeightMap<>(small, (i, j) -> 1.0).size());
+
+        // 50000 * 49999 ordered pairs do not fit in an int
+        List<Integer> large = IntStream.range(0, 50000).boxed().collect(Collectors.toList());
+        MatrixEdgeWeightMap<Integer> map = new MatrixEdgeWeightMap<>(large, (i, j) -> 1.0);
+        assertEquals(Integer.MAX_VALUE, map.size());
+        assertEquals(Integer.MAX_VALUE, map.entrySet().size());
+    }
+
+    @Test
+    public void testSetAndGetAllPairs() {
+        PackedDistanceMatrix distances = new PackedDistanceMatrix(5);
+        assertEquals(10, distances.getPairCount());
+        for (int i = 0; i < 5; i++) {
+            for (int j = i + 1; j < 5; j++) {
+                distances.set(j, i, 10 * i + j);
+            }
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0f, distances.get(i, i), 0f);
+            for (int j = i + 1; j < 5; j++) {
+                assertEquals(10 * i + j, distances.get(i, j), 0f);
+                assertEquals(10 * i + j, distances.get(j, i), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testBuildPackedMatchesFullTable() {
+        DistanceMatrix distanceMatrix = new DistanceMatrix(LATITUDES, LONGITUDES, DistanceMatrix.EARTH_RADIUS_KM);
+        double[][] full = distanceMatrix.build();
+        PackedDistanceMatrix packed = distanceMatrix.buildPacked();
+        double[] row = new double[5];
+        for (int i = 0; i < 5; i++) {
+            packed.getRow(i, row);
+            for (int j = 0; j < 5; j++) {
+                assertEquals((float) full[i][j], packed.get(i, j), 0f);
+                assertEquals((float) full[i][j], row[j], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testOffHeapStorage() throws IOException {
+        DistanceMatrix distanceMatrix = new DistanceMatrix(LATITUDES, LONGITUDES, DistanceMatrix.EARTH_RADIUS_KM);
+        PackedDistanceMatrix heap = distanceMatrix.buildPacked();
+        PackedDistanceMatrix direct = distanceMatrix.buildPacked(PackedDistanceMatrix.allocateDirect(5), ForkJoinPool.commonPool());
+        assertEquals(PackedDistanceMatrix.Storage.DIRECT, direct.getStorage());
+
+        Path file = Files.createTempFile("distances", ".bin");
+        try {
+            distanceMatrix.buildPacked(PackedDistanceMatrix.map(5, file), ForkJoinPool.commonPool());
+            assertEquals(10L * Float.BYTES, Files.size(file));
+            PackedDistanceMatrix mapped = PackedDistanceMatrix.map(5, file);
+            for (int i = 0; i < 5; i++) {
+                for (int j = 0; j < 5; j++) {
+                    assertEquals(heap.get(i, j), direct.get(i, j), 0f);
+                    assertEquals(heap.get(i, j), mapped.get(i, j), 0f);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package info6205.Graph;
+
+import info6205.Graph.Utils.DistanceMatrix;
+import info6205.Graph.Utils.PlanarProjection;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlanarProjectionTest {
+
+    private static final double[] LATITUDES = {51.50, 51.52, 51.47, 51.55, 51.45};
+
+    private static final double[] LONGITUDES = {-0.12, -0.08, -0.20, 0.02, -0.30};
+
+
+    @Test
+    public void testPlanarDistanceCloseToHaversine() {
+        PlanarProjection projection = new PlanarProjection(LATITUDES, LONGITUDES, DistanceMatrix.EARTH_RADIUS_KM);
+        DistanceMatrix haversine = new DistanceMatrix(LATITUDES, LONGITUDES, DistanceMatrix.EARTH_RADIUS_KM);
+        double maxRelativeError = 0;
+        for (int i = 0; i < LATITUDES.length; i++) {
+            for (int j = i + 1; j < LATITUDES.length; j++) {
+                double exact = haversine.distance(i, j);
+                maxRelativeError = Math.max(maxRelativeError, Math.abs(projection.distance(i, j) - exact) / exact);
+                assertEquals(projection.distance(i, j) * projection.distance(i, j), projection.squaredDistance(i, j), 1e-9);
+                assertEquals(projection.distance(i, j),
+                        projection.distance(LATITUDES[i], LONGITUDES[i], LATITUDES[j], LONGITUDES[j]), 1e-9);
+            }
+        }
+        assertEquals(maxRelativeError, projection.getMaxRelativeError(), 0.0);
+        assertTrue(projection.getMaxRelativeError() < 1e-3);
+        assertTrue(projection.getMaxAbsoluteError() < 0.01);
+    }
+
+    @Test
+    public void testPlanarDistanceMatrix() {
+        DistanceMatrix planar = new DistanceMatrix(LATITUDES, LONGITUDES, DistanceMatrix.EARTH_RADIUS_KM, DistanceMatrix.Metric.PLANAR);
+        assertEquals(DistanceMatrix.Metric.PLANAR, planar.getMetric());
+        double[][] distances = planar.build();
+        for (int i = 0; i < LATITUDES.length; i++) {
+            for (int j = 0; j < LATITUDES.length; j++) {
+                assertEquals(i == j ? 0 : planar.getProjection().distance(i, j), distances[i][j], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testErrorBoundCoversMeasuredError() {
+        Random random = new Random(21);
+        for (double centre : new double[]{-33.9, 0.0, 42.3, 51.5, 64.1}) {
+            for (double extent : new double[]{0.05, 0.5, 2.0}) {
+                double[] latitudes = new double[60];
+                double[] longitudes = new double[60];
+                for (int i = 0; i < latitudes.length; i++) {
+                    latitudes[i] = centre + (random.nextDouble() - 0.5) * extent;
+                    longitudes[i] = -71.0 + (random.nextDouble() - 0.5) * 2 * extent;
+                }
+                PlanarProjection projection = new PlanarProjection(latitudes, longitudes, DistanceMatrix.EARTH_RADIUS_KM);
+                assertTrue(projection.getMaxRelativeError() <= projection.getRelativeErrorBound());
+                assertTrue(projection.getMaxAbsoluteError() <= projection.getAbsoluteErrorBound());
+                // the bound is an estimate, not a blanket allowance; it is loosest on the equator, where only second order terms remain
+                assertTrue(projection.getRelativeErrorBound() < 10 * projection.getMaxRelativeError());
+            }
+        }
+        assertEquals(0.0, new PlanarProjection(new double[]{51.5}, new double[]{-0.1}, 6371).getRelativeErrorBound(), 0.0);
+    }
+}
@@ -4,13 +4,19 @@ import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.EdgeALG;
 import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.KeyLatLongId;
 import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.LatLongId;
 import info6205.Graph.Problems.TravellingSalesMan.GraphImpl.NodeALG;
+import info6205.Graph.Utils.DensePrim;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 import static info6205.Graph.Utility.Utility.calculateWeight;
 import static info6205.Graph.Utility.Utility.createNode;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class UndirectedEdgeWeightedListGraphTest {
 
@@ -84,4 +90,44 @@ public class UndirectedEdgeWeightedListGraphTest {
         assertEquals(1, mst.getNeighbours(node3.getKey()).size());
         assertEquals(1, mst.getNeighbours(node4.getKey()).size());
     }
+
+    @Test
+    public void testDensePrimsMatchesEagerPrims() {
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> graph = new UndirectedEdgeWeighedListGraph<>(EdgeALG::new);
+        List<Node<String, LatLongId>> nodes = new ArrayList<>();
+        Random random = new Random(7);
+        int size = 30;
+        double[][] weights = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            Node<String, LatLongId> node = createNode(random.nextDouble(), random.nextDouble(), "" + i);
+            nodes.add(node);
+            graph.addNode(node);
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                weights[i][j] = weights[j][i] = random.nextDouble();
+                graph.addEdge(nodes.get(i), nodes.get(j), weights[i][j]);
+            }
+        }
+        assertEquals(size * (size - 1) / 2, graph.getEdgeCount());
+        assertTrue(graph.isNearlyComplete());
+
+        double eagerWeight = calculateWeight(graph.getMSTByEagerPrims());
+        UndirectedEdgeWeighedListGraph<String, LatLongId, Double> denseMst = graph.getMSTByDensePrims();
+        assertEquals(size - 1, denseMst.getEdgeCount());
+        assertEquals(eagerWeight, calculateWeight(denseMst), 1e-9);
+        assertEquals(eagerWeight, calculateWeight(graph.getMSTByPrims()), 1e-9);
+
+        int[] parent = DensePrim.minimumSpanningTree(weights);
+        assertEquals(-1, parent[0]);
+        assertEquals(eagerWeight, DensePrim.totalWeight(parent, (i, j) -> weights[i][j]), 1e-9);
+
+        ImplicitCompleteGraph<String, LatLongId, Double> implicitGraph =
+                new ImplicitCompleteGraph<>(EdgeALG::new, nodes, (i, j) -> weights[i][j], (i, j) -> weights[i][j]);
+        assertEquals(eagerWeight, calculateWeight(implicitGraph.getMSTByPrims()), 1e-9);
+
+        graph.addNode(createNode(5.0, 5.0, "isolated"));
+        assertFalse(new UndirectedEdgeWeighedListGraph<String, LatLongId, Double>(EdgeALG::new).isNearlyComplete());
+        assertEquals(eagerWeight, calculateWeight(graph.getMSTByDensePrims()), 1e-9);
+    }
 }